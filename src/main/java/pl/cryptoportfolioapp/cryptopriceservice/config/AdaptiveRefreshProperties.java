@@ -0,0 +1,46 @@
+package pl.cryptoportfolioapp.cryptopriceservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Settings of the tiered price refresh, which replaces the fixed delay refresh of every coin when enabled.
+ * Volatility thresholds are absolute {@code percentChange1h} values, a coin requested at least
+ * {@code popularRequests} times within the popularity window is refreshed one tier faster.
+ * The tick, {@code price.refresh.adaptive.tick}, is read by the scheduled method itself. {@code leaseTtl} should
+ * span a few ticks, the lease renewed on every tick of its holder is taken over that long after the holder stopped.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Data
+@ConfigurationProperties(prefix = "price.refresh.adaptive")
+public class AdaptiveRefreshProperties {
+
+    private boolean enabled = false;
+    private int creditsPerMinute = 10;
+    private int idsPerCredit = 100;
+    private int popularRequests = 20;
+    private Duration popularityWindow = Duration.ofMinutes(15);
+    private Duration leaseTtl = Duration.ofMinutes(3);
+    private Tier fast = new Tier(Duration.ofMinutes(1), new BigDecimal("1.0"));
+    private Tier normal = new Tier(Duration.ofMinutes(5), new BigDecimal("0.25"));
+    private Tier slow = new Tier(Duration.ofMinutes(15), new BigDecimal("0.05"));
+    private Tier dormant = new Tier(Duration.ofMinutes(60), BigDecimal.ZERO);
+
+    @Data
+    public static class Tier {
+        private Duration interval;
+        private BigDecimal minVolatility;
+
+        public Tier() {
+        }
+
+        public Tier(Duration interval, BigDecimal minVolatility) {
+            this.interval = interval;
+            this.minVolatility = minVolatility;
+        }
+    }
+}
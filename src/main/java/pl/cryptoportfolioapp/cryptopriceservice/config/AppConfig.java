@@ -1,19 +1,26 @@
 package pl.cryptoportfolioapp.cryptopriceservice.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 @ComponentScan({"pl.cryptoportfolioapp.cryptopriceservice"})
 @EntityScan(basePackages = "pl.cryptoportfolioapp.cryptopriceservice")
 @EnableJpaRepositories(basePackages = "pl.cryptoportfolioapp.cryptopriceservice")
+@EnableConfigurationProperties({CoinMarketCapClientProperties.class, AdaptiveRefreshProperties.class})
 @EnableScheduling
 public class AppConfig {
     @Value("${api.coin.market.cap.baseUrl}")
@@ -24,9 +31,10 @@ public class AppConfig {
     private String headerKeyValue;
 
     @Bean
-    public WebClient getCoinMarketCapWebClient() {
+    public WebClient getCoinMarketCapWebClient(CoinMarketCapClientProperties clientProperties) {
         return WebClient.builder()
                 .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(createCoinMarketCapHttpClient(clientProperties)))
                 .defaultHeaders(httpHeaders -> {
                     httpHeaders.add(HttpHeaders.ACCEPT, "application/json");
                     httpHeaders.add(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip");
@@ -34,4 +42,27 @@ public class AppConfig {
                 })
                 .build();
     }
+
+    static HttpClient createCoinMarketCapHttpClient(CoinMarketCapClientProperties clientProperties) {
+        var pool = clientProperties.getPool();
+        var connectionProvider = ConnectionProvider.builder("coin-market-cap")
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(clientProperties.isMetrics())
+                .build();
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) clientProperties.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, clientProperties.isKeepAlive())
+                .keepAlive(clientProperties.isKeepAlive())
+                .responseTimeout(clientProperties.getResponseTimeout())
+                .compress(true)
+                .metrics(clientProperties.isMetrics(), uri -> uri.split("\\?", 2)[0]);
+        return clientProperties.isHttp2() ?
+                httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11) :
+                httpClient;
+    }
 }
@@ -0,0 +1,19 @@
+package pl.cryptoportfolioapp.cryptopriceservice.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CandleInterval;
+
+/**
+ * Binds request parameters like {@code interval=5m} to {@link CandleInterval}.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Component
+public class CandleIntervalConverter implements Converter<String, CandleInterval> {
+
+    @Override
+    public CandleInterval convert(String source) {
+        return CandleInterval.fromCode(source);
+    }
+}
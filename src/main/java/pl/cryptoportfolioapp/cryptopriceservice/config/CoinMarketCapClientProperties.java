@@ -0,0 +1,33 @@
+package pl.cryptoportfolioapp.cryptopriceservice.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Connector settings of the CoinMarketCap {@link org.springframework.web.reactive.function.client.WebClient}.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Data
+@ConfigurationProperties(prefix = "api.coin.market.cap.client")
+public class CoinMarketCapClientProperties {
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration responseTimeout = Duration.ofSeconds(30);
+    private boolean keepAlive = true;
+    private boolean http2 = false;
+    private boolean metrics = true;
+    private Pool pool = new Pool();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 16;
+        private int pendingAcquireMaxCount = 256;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,19 @@
+package pl.cryptoportfolioapp.cryptopriceservice.config;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
+
+/**
+ * Binds request parameters like {@code sort=percentChange24h,desc} to {@link CryptocurrencySort}.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Component
+public class CryptocurrencySortConverter implements Converter<String, CryptocurrencySort> {
+
+    @Override
+    public CryptocurrencySort convert(String source) {
+        return CryptocurrencySort.parse(source);
+    }
+}
@@ -0,0 +1,34 @@
+package pl.cryptoportfolioapp.cryptopriceservice.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import pl.cryptoportfolioapp.cryptopriceservice.controller.PriceDeltaWebSocketHandler;
+
+import java.util.Arrays;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private PriceDeltaWebSocketHandler priceDeltaWebSocketHandler;
+
+    /**
+     * Exact origins allowed to open the feed, none means same origin only. Wildcards are rejected.
+     */
+    @Value("${price.websocket.allowed.origins:}")
+    private String[] allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        if (Arrays.stream(allowedOrigins).anyMatch(origin -> origin.contains("*")))
+            throw new IllegalStateException("price.websocket.allowed.origins must list explicit origins, was "
+                    + String.join(",", allowedOrigins));
+        registry.addHandler(priceDeltaWebSocketHandler, "/api/v1/cryptocurrency/ws")
+                .setAllowedOrigins(allowedOrigins);
+    }
+}
@@ -2,18 +2,53 @@ package pl.cryptoportfolioapp.cryptopriceservice.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CandleDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyBatchResultDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyPageDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyPostDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
 import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CandleInterval;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CandleService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyBatchRegistrationService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyExportService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyPageService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyPopularityService;
 import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencySnapshotService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.JsonPayload;
+import pl.cryptoportfolioapp.cryptopriceservice.service.PriceChangeStreamService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.StalePriceRefreshService;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Karol Kuta-Orlowicz
@@ -27,25 +62,140 @@ public class CryptocurrencyController {
     private static final CryptocurrencyMapper mapper = CryptocurrencyMapper.INSTANCE;
     @Autowired
     private CryptocurrencyService cryptocurrencyService;
+    @Autowired
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+    @Autowired
+    private CandleService candleService;
+    @Autowired
+    private PriceChangeStreamService priceChangeStreamService;
+    @Autowired
+    private CryptocurrencyPopularityService cryptocurrencyPopularityService;
+    @Autowired
+    private StalePriceRefreshService stalePriceRefreshService;
+    @Autowired
+    private CryptocurrencyBatchRegistrationService cryptocurrencyBatchRegistrationService;
+    @Autowired
+    private CryptocurrencyPageService cryptocurrencyPageService;
+    @Autowired
+    private CryptocurrencyExportService cryptocurrencyExportService;
+    @Value("${price.stream.timeout:PT30M}")
+    private Duration streamTimeout = Duration.ofMinutes(30);
+    @Value("${price.stream.heartbeat.interval:PT15S}")
+    private Duration streamHeartbeatInterval = Duration.ofSeconds(15);
 
     @GetMapping("/{id}")
-    public ResponseEntity<CryptocurrencyDTO> getCryptocurrencyById(@PathVariable("id") Long id) {
-        var cryptocurrency = cryptocurrencyService.getById(id);
-        var cryptocurrencyDto = mapper.mapEntityToCryptocurrencyDto(cryptocurrency, new CycleAvoidingMappingContext());
-        return ResponseEntity.status(HttpStatus.OK).body(cryptocurrencyDto);
+    public ResponseEntity<byte[]> getCryptocurrencyById(@PathVariable("id") Long id,
+                                                        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                        WebRequest webRequest) {
+        var snapshot = cryptocurrencySnapshotService.getSnapshot();
+        var cryptocurrencyDTO = snapshot.getById(id)
+                .orElseGet(() -> mapper.mapEntityToCryptocurrencyDto(cryptocurrencyService.getById(id),
+                        new CycleAvoidingMappingContext()));
+        var payload = snapshot.getPayloadById(id)
+                .orElseGet(() -> cryptocurrencySnapshotService.serialize(cryptocurrencyDTO));
+        cryptocurrencyPopularityService.recordRequest(id);
+        stalePriceRefreshService.requestRefreshIfStale(cryptocurrencyDTO);
+        return jsonPayloadResponse(payload, acceptEncoding, webRequest);
     }
 
-    @GetMapping("")
-    public List<CryptocurrencyDTO> getCryptocurrencies(@RequestParam(name = "name", required = false) List<String> names) {
-        return Optional.ofNullable(names).isPresent() ?
-                cryptocurrencyService.getByName(names)
-                        .stream()
-                        .map(cryptocurrency -> mapper.mapEntityToCryptocurrencyDto(cryptocurrency, new CycleAvoidingMappingContext()))
-                        .toList() :
-                cryptocurrencyService.getCryptocurrencies()
+    /**
+     * Only this emitter outlives the default async timeout, clients reconnect once it times out.
+     * A comment is sent every heartbeat interval, so proxies keep an idle stream open and a gone client
+     * is noticed by the failed write.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPriceChanges() {
+        return streamPriceChanges(new SseEmitter(streamTimeout.toMillis()));
+    }
+
+    /**
+     * Blocking writes run on a bounded elastic worker and demand is requested one event at a time, so changes
+     * of a slow client pile up in its own buffer of {@link PriceChangeStreamService} instead of stalling the refresh
+     * thread that publishes them.
+     */
+    SseEmitter streamPriceChanges(SseEmitter emitter) {
+        var subscription = priceChangeStreamService.stream()
+                .publish(priceChanges -> Flux.merge(1,
+                        priceChanges.map(priceChange -> SseEmitter.event()
+                                .id(String.valueOf(priceChange.cryptocurrency().getId()))
+                                .name("price")
+                                .data(priceChange.cryptocurrency(), MediaType.APPLICATION_JSON)),
+                        Flux.interval(streamHeartbeatInterval)
+                                .map(tick -> SseEmitter.event().comment("heartbeat"))
+                                .takeUntilOther(priceChanges.then())), 1)
+                .publishOn(Schedulers.boundedElastic(), 1)
+                .subscribe(event -> send(emitter, event), emitter::completeWithError, emitter::complete);
+        emitter.onCompletion(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return emitter;
+    }
+
+    @GetMapping("/{id}/candles")
+    public List<CandleDTO> getCandles(@PathVariable("id") Long id,
+                                      @RequestParam(name = "interval") CandleInterval interval,
+                                      @RequestParam(name = "from", required = false)
+                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                      @RequestParam(name = "to", required = false)
+                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        cryptocurrencyPopularityService.recordRequest(id);
+        var toTime = Optional.ofNullable(to).orElseGet(() -> LocalDateTime.now(ZoneOffset.UTC));
+        var fromTime = Optional.ofNullable(from).orElseGet(() -> toTime.minus(interval.getDuration().multipliedBy(100)));
+        return candleService.getCandles(id, interval, fromTime, toTime)
+                .stream()
+                .map(mapper::mapEntityToCandleDto)
+                .toList();
+    }
+
+    @GetMapping(path = "", params = {"!name", "!symbol", "!limit"})
+    public ResponseEntity<byte[]> getCryptocurrencies(
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest) {
+        return jsonPayloadResponse(cryptocurrencySnapshotService.getSnapshot().listPayload(), acceptEncoding, webRequest);
+    }
+
+    /**
+     * Keyset page like {@code ?limit=100&sort=percentChange24h,desc}, further pages are requested with
+     * {@code cursor} set to the returned {@code nextCursor}. With the id order {@code after=<id>} works as well.
+     */
+    @GetMapping(path = "", params = {"!name", "!symbol", "limit"})
+    public CryptocurrencyPageDTO getCryptocurrencyPage(@RequestParam(name = "limit") int limit,
+                                                       @RequestParam(name = "sort", required = false) CryptocurrencySort sort,
+                                                       @RequestParam(name = "after", required = false) Long after,
+                                                       @RequestParam(name = "cursor", required = false) String cursor) {
+        var page = cryptocurrencyPageService.getPage(limit, sort, after, cursor);
+        return new CryptocurrencyPageDTO()
+                .setCryptocurrencies(page.cryptocurrencies()
                         .stream()
-                        .map(cryptocurrency -> mapper.mapEntityToCryptocurrencyDto(cryptocurrency, new CycleAvoidingMappingContext()))
-                        .toList();
+                        .map(cryptocurrency -> mapper.mapEntityToCryptocurrencyDto(cryptocurrency,
+                                new CycleAvoidingMappingContext()))
+                        .toList())
+                .setNextCursor(page.next() != null ? page.next().encode() : null);
+    }
+
+    /**
+     * Streams every cryptocurrency with its price as one JSON object per line, written while rows are read.
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportCryptocurrencies() {
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cryptocurrencyExportService::exportNdjson);
+    }
+
+    @GetMapping(path = "", params = "name")
+    public List<CryptocurrencyDTO> getCryptocurrenciesByName(@RequestParam(name = "name") List<String> names) {
+        var cryptocurrencyDTOS = addSnapshotMisses(cryptocurrencySnapshotService.getSnapshot().getByName(names),
+                names, CryptocurrencyDTO::getName, cryptocurrencyService::getByName);
+        recordReads(cryptocurrencyDTOS);
+        return cryptocurrencyDTOS;
+    }
+
+    @GetMapping(path = "", params = {"!name", "symbol"})
+    public List<CryptocurrencyDTO> getCryptocurrenciesBySymbol(@RequestParam(name = "symbol") List<String> symbols) {
+        var cryptocurrencyDTOS = addSnapshotMisses(cryptocurrencySnapshotService.getSnapshot().getBySymbol(symbols),
+                symbols, CryptocurrencyDTO::getSymbol, cryptocurrencyService::getBySymbol);
+        recordReads(cryptocurrencyDTOS);
+        return cryptocurrencyDTOS;
     }
 
     @PostMapping("")
@@ -57,6 +207,18 @@ public class CryptocurrencyController {
         return ResponseEntity.status(HttpStatus.CREATED).body(cryptocurrencyDTO);
     }
 
+    /**
+     * Responds 201 when every entry was registered, otherwise 207 with the status of each entry.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<CryptocurrencyBatchResultDTO>> registerCryptocurrencies(
+            @RequestBody List<CryptocurrencyPostDTO> cryptocurrencyPostDTOS) {
+        var results = cryptocurrencyBatchRegistrationService.registerCryptocurrencies(cryptocurrencyPostDTOS);
+        var allCreated = results.stream()
+                .allMatch(result -> result.getStatus() == HttpStatus.CREATED.value());
+        return ResponseEntity.status(allCreated ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS).body(results);
+    }
+
     @DeleteMapping("/{id}")
     public void deleteCryptocurrencyById(@PathVariable("id") Long id) {
         cryptocurrencyService.deleteCryptocurrency(id);
@@ -71,4 +233,107 @@ public class CryptocurrencyController {
         return ResponseEntity.status(HttpStatus.OK).body(cryptocurrencyDto);
     }
 
+    /**
+     * Values the snapshot does not know, like a cryptocurrency registered on another instance since the last publish,
+     * are looked up in the database, the result stays ordered by id.
+     */
+    private static List<CryptocurrencyDTO> addSnapshotMisses(List<CryptocurrencyDTO> cryptocurrencyDTOS,
+                                                             List<String> values,
+                                                             Function<CryptocurrencyDTO, String> field,
+                                                             Function<List<String>, List<Cryptocurrency>> lookup) {
+        var foundValues = cryptocurrencyDTOS.stream()
+                .map(cryptocurrencyDTO -> field.apply(cryptocurrencyDTO).toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        var missingValues = values.stream()
+                .filter(value -> !foundValues.contains(value.toLowerCase(Locale.ROOT)))
+                .toList();
+        if (missingValues.isEmpty())
+            return cryptocurrencyDTOS;
+        var foundIds = cryptocurrencyDTOS.stream()
+                .map(CryptocurrencyDTO::getId)
+                .collect(Collectors.toSet());
+        var missingCryptocurrencyDTOS = lookup.apply(missingValues)
+                .stream()
+                .filter(cryptocurrency -> !foundIds.contains(cryptocurrency.getId()))
+                .map(cryptocurrency -> mapper.mapEntityToCryptocurrencyDto(cryptocurrency, new CycleAvoidingMappingContext()))
+                .toList();
+        if (missingCryptocurrencyDTOS.isEmpty())
+            return cryptocurrencyDTOS;
+        return Stream.concat(cryptocurrencyDTOS.stream(), missingCryptocurrencyDTOS.stream())
+                .sorted(Comparator.comparing(CryptocurrencyDTO::getId))
+                .toList();
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void recordReads(List<CryptocurrencyDTO> cryptocurrencyDTOS) {
+        cryptocurrencyDTOS.forEach(cryptocurrencyDTO -> {
+            cryptocurrencyPopularityService.recordRequest(cryptocurrencyDTO.getId());
+            stalePriceRefreshService.requestRefreshIfStale(cryptocurrencyDTO);
+        });
+    }
+
+    /**
+     * Conditional requests are answered with 304 before any body is chosen,
+     * {@link WebRequest#checkNotModified(String, long)} also sets ETag and Last-Modified of the 200 response.
+     * Vary is set on the servlet response up front, so the 304 carries it as well.
+     */
+    private static ResponseEntity<byte[]> jsonPayloadResponse(JsonPayload payload, String acceptEncoding,
+                                                              WebRequest webRequest) {
+        if (webRequest instanceof ServletWebRequest servletWebRequest && servletWebRequest.getResponse() != null)
+            servletWebRequest.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        var gzip = acceptsGzip(acceptEncoding);
+        if (webRequest.checkNotModified(gzip ? payload.gzipETag() : payload.eTag(), payload.lastModified()))
+            return null;
+        var responseBuilder = ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip)
+            return responseBuilder
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(payload.gzip());
+        return responseBuilder
+                .body(payload.json());
+    }
+
+    /**
+     * Gzip is acceptable when its own quality value, or else the one of {@code *}, is above 0.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (var coding : acceptEncoding.split(",")) {
+            var parameters = coding.split(";");
+            var name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip") || name.equals("x-gzip"))
+                gzipQuality = quality(parameters);
+            else if (name.equals("*"))
+                wildcardQuality = quality(parameters);
+        }
+        if (gzipQuality != null)
+            return gzipQuality > 0;
+        return wildcardQuality != null && wildcardQuality > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (var i = 1; i < parameters.length; i++) {
+            var parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
 }
@@ -0,0 +1,72 @@
+package pl.cryptoportfolioapp.cryptopriceservice.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.PriceSubscriptionDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.service.PriceDeltaFeedService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket price feed. Clients send text messages like {@code {"subscribe":["BTC"],"unsubscribe":["ETH"]}}
+ * and receive binary price deltas of subscribed symbols after every refresh.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Component
+@Slf4j
+public class PriceDeltaWebSocketHandler extends AbstractWebSocketHandler {
+
+    @Autowired
+    private PriceDeltaFeedService priceDeltaFeedService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${price.websocket.send.time.limit.ms:5000}")
+    private int sendTimeLimit;
+
+    @Value("${price.websocket.send.buffer.size.limit:524288}")
+    private int sendBufferSizeLimit;
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(), new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, sendBufferSizeLimit,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        PriceSubscriptionDTO priceSubscriptionDTO;
+        try {
+            priceSubscriptionDTO = objectMapper.readValue(message.getPayload(), PriceSubscriptionDTO.class);
+        } catch (JsonProcessingException e) {
+            log.info(String.format("Closing session: %s, invalid subscription message: %s", session.getId(), e.getMessage()));
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+        var concurrentSession = sessions.getOrDefault(session.getId(), session);
+        if (priceSubscriptionDTO.getUnsubscribe() != null)
+            priceDeltaFeedService.unsubscribe(concurrentSession, priceSubscriptionDTO.getUnsubscribe());
+        if (priceSubscriptionDTO.getSubscribe() != null)
+            priceDeltaFeedService.subscribe(concurrentSession, priceSubscriptionDTO.getSubscribe());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        var concurrentSession = sessions.remove(session.getId());
+        priceDeltaFeedService.remove(concurrentSession != null ? concurrentSession : session);
+    }
+}
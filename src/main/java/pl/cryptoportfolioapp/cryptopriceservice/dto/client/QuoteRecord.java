@@ -0,0 +1,21 @@
+package pl.cryptoportfolioapp.cryptopriceservice.dto.client;
+
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
+
+/**
+ * USD quote of one cryptocurrency as streamed out of a quotes response, every other field of the response is skipped.
+ * Values are {@link FixedPoint} longs, {@link FixedPoint#NULL} when absent. When any value does not fit the
+ * fixed-point range the whole quote is kept in {@code overflowQuote} instead and the long values are not used.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public record QuoteRecord(Long coinMarketId,
+                          long priceCurrent,
+                          long percentChange1h,
+                          long percentChange24h,
+                          long percentChange7d,
+                          long percentChange30d,
+                          long percentChange60d,
+                          long percentChange90d,
+                          PriceQuoteDTO overflowQuote) {
+}
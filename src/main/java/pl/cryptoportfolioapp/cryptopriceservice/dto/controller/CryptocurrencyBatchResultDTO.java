@@ -0,0 +1,29 @@
+package pl.cryptoportfolioapp.cryptopriceservice.dto.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+
+import java.util.List;
+
+/**
+ * Outcome of one entry of a batch registration, {@code index} points at the entry in the request.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CryptocurrencyBatchResultDTO {
+
+    private int index;
+
+    private int status;
+
+    @JsonProperty("cryptocurrency")
+    private CryptocurrencyDTO cryptocurrencyDTO;
+
+    private List<String> errors;
+}
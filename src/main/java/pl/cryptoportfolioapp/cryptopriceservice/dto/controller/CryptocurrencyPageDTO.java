@@ -0,0 +1,24 @@
+package pl.cryptoportfolioapp.cryptopriceservice.dto.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+
+import java.util.List;
+
+/**
+ * One page of a cryptocurrency listing, {@code nextCursor} is passed as {@code cursor} to get the next page
+ * and is left out on the last one.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CryptocurrencyPageDTO {
+
+    private List<CryptocurrencyDTO> cryptocurrencies;
+
+    private String nextCursor;
+}
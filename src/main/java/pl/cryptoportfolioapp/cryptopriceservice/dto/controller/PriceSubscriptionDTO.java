@@ -0,0 +1,18 @@
+package pl.cryptoportfolioapp.cryptopriceservice.dto.controller;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * Message of a price feed client, symbols to start and to stop receiving deltas for.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Data
+@Accessors(chain = true)
+public class PriceSubscriptionDTO {
+    private List<String> subscribe;
+    private List<String> unsubscribe;
+}
@@ -0,0 +1,21 @@
+package pl.cryptoportfolioapp.cryptopriceservice.dto.model;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@Data
+@Accessors(chain = true)
+public class CandleDTO {
+    private LocalDateTime openTime;
+    private BigDecimal priceOpen;
+    private BigDecimal priceHigh;
+    private BigDecimal priceLow;
+    private BigDecimal priceClose;
+    private Integer ticks;
+}
@@ -0,0 +1,7 @@
+package pl.cryptoportfolioapp.cryptopriceservice.exception;
+
+public class CryptocurrencyBatchTooLargeException extends RuntimeException {
+    public CryptocurrencyBatchTooLargeException(int size, int maxSize) {
+        super(String.format("Batch of %d cryptocurrencies exceeds the limit of %d", size, maxSize));
+    }
+}
@@ -0,0 +1,7 @@
+package pl.cryptoportfolioapp.cryptopriceservice.exception;
+
+public class InvalidCandleRangeException extends RuntimeException {
+    public InvalidCandleRangeException(String message) {
+        super(message);
+    }
+}
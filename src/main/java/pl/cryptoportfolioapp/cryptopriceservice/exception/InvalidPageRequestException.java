@@ -0,0 +1,7 @@
+package pl.cryptoportfolioapp.cryptopriceservice.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -12,13 +12,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CandleInterval;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
 
 import java.sql.SQLIntegrityConstraintViolationException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Order(Ordered.HIGHEST_PRECEDENCE)
@@ -26,6 +30,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private static final Set<Class<?>> JSON_API_ERROR_PARAMETER_TYPES =
+            Set.of(CandleInterval.class, LocalDateTime.class, CryptocurrencySort.class);
+
     @ExceptionHandler(CryptocurrencyNotFoundException.class)
     public ResponseEntity<?> handleCryptoNotFoundException(CryptocurrencyNotFoundException ex) {
         var jsonApiError = JsonApiError.builder()
@@ -65,6 +72,45 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(jsonApiError, jsonApiError.getStatus());
     }
 
+    @ExceptionHandler(CryptocurrencyBatchTooLargeException.class)
+    public ResponseEntity<?> handleCryptocurrencyBatchTooLargeException(CryptocurrencyBatchTooLargeException ex) {
+        var jsonApiError = JsonApiError.builder()
+                .status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .message(ex.getMessage())
+                .timestamp(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        log.info(String.format("Status: %s Message: %s",
+                jsonApiError.getStatus(),
+                jsonApiError.getMessage()));
+        return new ResponseEntity<>(jsonApiError, jsonApiError.getStatus());
+    }
+
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ResponseEntity<?> handleInvalidPageRequestException(InvalidPageRequestException ex) {
+        var jsonApiError = JsonApiError.builder()
+                .status(HttpStatus.BAD_REQUEST)
+                .message(ex.getMessage())
+                .timestamp(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        log.info(String.format("Status: %s Message: %s",
+                jsonApiError.getStatus(),
+                jsonApiError.getMessage()));
+        return new ResponseEntity<>(jsonApiError, jsonApiError.getStatus());
+    }
+
+    @ExceptionHandler(InvalidCandleRangeException.class)
+    public ResponseEntity<?> handleInvalidCandleRangeException(InvalidCandleRangeException ex) {
+        var jsonApiError = JsonApiError.builder()
+                .status(HttpStatus.BAD_REQUEST)
+                .message(ex.getMessage())
+                .timestamp(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        log.info(String.format("Status: %s Message: %s",
+                jsonApiError.getStatus(),
+                jsonApiError.getMessage()));
+        return new ResponseEntity<>(jsonApiError, jsonApiError.getStatus());
+    }
+
     @ExceptionHandler(MarketApiClientException.class)
     public ResponseEntity<?> handleMarketApiClientException(MarketApiClientException ex) {
         var jsonApiError = JsonApiError.builder()
@@ -103,4 +149,24 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
                 jsonApiError.getErrors()));
         return new ResponseEntity<>(jsonApiError, jsonApiError.getStatus());
     }
+
+    /**
+     * Only parameters of the candle and page endpoints get a JsonApiError,
+     * any other mismatch keeps the default empty 400 response.
+     */
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<?> handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex,
+                                                                       WebRequest request) {
+        if (!JSON_API_ERROR_PARAMETER_TYPES.contains(ex.getParameter().getParameterType()))
+            return handleTypeMismatch(ex, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+        var jsonApiError = JsonApiError.builder()
+                .status(HttpStatus.BAD_REQUEST)
+                .message(String.format("Invalid value '%s' of parameter %s", ex.getValue(), ex.getName()))
+                .timestamp(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        log.info(String.format("Status: %s Message: %s",
+                jsonApiError.getStatus(),
+                jsonApiError.getMessage()));
+        return new ResponseEntity<>(jsonApiError, jsonApiError.getStatus());
+    }
 }
@@ -5,16 +5,21 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import org.mapstruct.MappingTarget;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.PriceQuoteDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CandleDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyPostDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyQuoteDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
 import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.MappingUtil;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.model.PriceCandle;
 
 /**
  * @author Karol Kuta-Orlowicz
@@ -31,6 +36,10 @@ public interface CryptocurrencyMapper {
     @Mapping(target = "cryptocurrencyDTO", source = "cryptocurrency")
     PriceDTO mapEntityToPriceDto(Price price);
 
+    @Named("previousPrice")
+    @Mapping(target = "cryptocurrencyDTO", ignore = true)
+    PriceDTO mapEntityToPreviousPriceDto(Price price);
+
     @Mapping(target = "id", ignore = true)
     PriceDTO mapQuoteDtoToPriceDto(PriceQuoteDTO priceQuoteDTO);
 
@@ -53,6 +62,21 @@ public interface CryptocurrencyMapper {
     @Mapping(target = "id", ignore = true)
     PriceDTO updateDtoByPriceQuoteDto(@MappingTarget PriceDTO priceDTO, PriceQuoteDTO priceQuoteDTO);
 
+    /**
+     * Fixed-point quote values turn into {@link java.math.BigDecimal} only here, where they leave the refresh path.
+     */
+    default PriceDTO updateDtoByQuoteRecord(@MappingTarget PriceDTO priceDTO, QuoteRecord quoteRecord) {
+        if (quoteRecord.overflowQuote() != null)
+            return updateDtoByPriceQuoteDto(priceDTO, quoteRecord.overflowQuote());
+        return priceDTO.setPriceCurrent(FixedPoint.toBigDecimal(quoteRecord.priceCurrent()))
+                .setPercentChange1h(FixedPoint.toBigDecimal(quoteRecord.percentChange1h()))
+                .setPercentChange24h(FixedPoint.toBigDecimal(quoteRecord.percentChange24h()))
+                .setPercentChange7d(FixedPoint.toBigDecimal(quoteRecord.percentChange7d()))
+                .setPercentChange30d(FixedPoint.toBigDecimal(quoteRecord.percentChange30d()))
+                .setPercentChange60d(FixedPoint.toBigDecimal(quoteRecord.percentChange60d()))
+                .setPercentChange90d(FixedPoint.toBigDecimal(quoteRecord.percentChange90d()));
+    }
+
     @Mappings({
             @Mapping(target = "priceDTO", source = "quote", qualifiedBy = MappingUtil.PriceMap.class),
             @Mapping(target = "id", ignore = true),
@@ -62,4 +86,6 @@ public interface CryptocurrencyMapper {
     })
     CryptocurrencyDTO updateDtoByCryptocurrencyQuoteDto(@MappingTarget CryptocurrencyDTO cryptocurrencyDTO,
                                                         CryptocurrencyQuoteDTO cryptocurrencyQuoteDTO);
-}
\ No newline at end of file
+
+    CandleDTO mapEntityToCandleDto(PriceCandle priceCandle);
+}
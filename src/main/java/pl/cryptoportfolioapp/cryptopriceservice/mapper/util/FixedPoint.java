@@ -0,0 +1,134 @@
+package pl.cryptoportfolioapp.cryptopriceservice.mapper.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point decimal packed in a primitive long, unscaled value with the scale of the price columns.
+ * Covers magnitudes up to about 9.2 million, callers fall back to {@link BigDecimal} when
+ * {@link ArithmeticException} signals a value out of that range. {@link #NULL} stands for an absent value.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public final class FixedPoint {
+
+    public static final int SCALE = 12;
+    public static final long NULL = Long.MIN_VALUE;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+    private static final long HALF_OF_10_POW_19 = 5_000_000_000_000_000_000L;
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (var i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Parses a JSON number, e.g. {@code -12.5} or {@code 3.2e-7}, without creating a {@link BigDecimal}.
+     * Digits beyond the scale are rounded half up, like MySQL does when storing the decimal.
+     *
+     * @throws ArithmeticException when the value does not fit the fixed-point range
+     * @throws NumberFormatException when the text is not a number
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        var end = offset + length;
+        var position = offset;
+        var negative = position < end && chars[position] == '-';
+        if (negative || position < end && chars[position] == '+')
+            position++;
+        var mantissa = 0L;
+        var scale = 0;
+        var firstDroppedDigit = -1;
+        var digits = 0;
+        var fraction = false;
+        for (; position < end; position++) {
+            var c = chars[position];
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            if (c < '0' || c > '9')
+                break;
+            var digit = c - '0';
+            digits++;
+            if (mantissa <= (Long.MAX_VALUE - digit) / 10) {
+                mantissa = mantissa * 10 + digit;
+                if (fraction)
+                    scale++;
+            } else {
+                if (firstDroppedDigit < 0)
+                    firstDroppedDigit = digit;
+                if (!fraction)
+                    scale--;
+            }
+        }
+        if (digits == 0)
+            throw new NumberFormatException("Not a number: " + new String(chars, offset, length));
+        if (position < end)
+            scale -= parseExponent(chars, offset, length, position, end);
+
+        var shift = SCALE - scale;
+        long value;
+        if (shift > 0) {
+            if (mantissa == 0 && firstDroppedDigit < 0)
+                value = 0;
+            else if (firstDroppedDigit >= 0 || shift >= POWERS_OF_TEN.length
+                    || mantissa > Long.MAX_VALUE / POWERS_OF_TEN[shift])
+                throw outOfRange(chars, offset, length);
+            else
+                value = mantissa * POWERS_OF_TEN[shift];
+        } else if (shift == 0) {
+            if (firstDroppedDigit >= 5 && mantissa == Long.MAX_VALUE)
+                throw outOfRange(chars, offset, length);
+            value = firstDroppedDigit >= 5 ? mantissa + 1 : mantissa;
+        } else if (-shift < POWERS_OF_TEN.length) {
+            var divisor = POWERS_OF_TEN[-shift];
+            value = mantissa / divisor;
+            if (mantissa % divisor >= divisor - divisor / 2)
+                value++;
+        } else {
+            value = -shift == POWERS_OF_TEN.length && mantissa >= HALF_OF_10_POW_19 ? 1 : 0;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @throws ArithmeticException when the value does not fit the fixed-point range
+     */
+    public static long valueOf(BigDecimal decimal) {
+        if (decimal == null)
+            return NULL;
+        return decimal.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long value) {
+        return value == NULL ? null : BigDecimal.valueOf(value, SCALE);
+    }
+
+    private static int parseExponent(char[] chars, int offset, int length, int position, int end) {
+        if (chars[position] != 'e' && chars[position] != 'E' || ++position == end)
+            throw new NumberFormatException("Not a number: " + new String(chars, offset, length));
+        var negative = chars[position] == '-';
+        if (negative || chars[position] == '+')
+            position++;
+        if (position == end)
+            throw new NumberFormatException("Not a number: " + new String(chars, offset, length));
+        var exponent = 0;
+        for (; position < end; position++) {
+            var c = chars[position];
+            if (c < '0' || c > '9')
+                throw new NumberFormatException("Not a number: " + new String(chars, offset, length));
+            exponent = Math.min(exponent * 10 + (c - '0'), 1_000);
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private static ArithmeticException outOfRange(char[] chars, int offset, int length) {
+        return new ArithmeticException("Out of fixed-point range: " + new String(chars, offset, length));
+    }
+}
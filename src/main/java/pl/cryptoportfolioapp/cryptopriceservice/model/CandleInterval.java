@@ -0,0 +1,45 @@
+package pl.cryptoportfolioapp.cryptopriceservice.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+public enum CandleInterval {
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1)),
+    ONE_DAY("1d", Duration.ofDays(1));
+
+    private final String code;
+    private final Duration duration;
+
+    CandleInterval(String code, Duration duration) {
+        this.code = code;
+        this.duration = duration;
+    }
+
+    public static CandleInterval fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(interval -> interval.code.equals(code))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(String.format("Unsupported candle interval: %s", code)));
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+        var epochSecond = timestamp.toEpochSecond(ZoneOffset.UTC);
+        var bucketSeconds = duration.toSeconds();
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochSecond, bucketSeconds) * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+}
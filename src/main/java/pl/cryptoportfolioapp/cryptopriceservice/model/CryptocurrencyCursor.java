@@ -0,0 +1,40 @@
+package pl.cryptoportfolioapp.cryptopriceservice.model;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a sorted cryptocurrency listing, the sort value and id of the last cryptocurrency of a page.
+ * Clients get it as an opaque URL safe token, the next page continues strictly after that position,
+ * so reaching a deep page costs the same as the first one.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public record CryptocurrencyCursor(CryptocurrencySort sort, BigDecimal lastValue, Long lastId) {
+
+    private static final String NULL_VALUE = "";
+
+    public static CryptocurrencyCursor after(CryptocurrencySort sort, Cryptocurrency cryptocurrency) {
+        return new CryptocurrencyCursor(sort, sort.field().getValue(cryptocurrency), cryptocurrency.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not created by {@link #encode()}
+     */
+    public static CryptocurrencyCursor decode(String token) {
+        var decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        var parts = decoded.split(";", -1);
+        if (parts.length != 3)
+            throw new IllegalArgumentException("Malformed cursor");
+        var sort = CryptocurrencySort.parse(parts[0]);
+        var lastValue = NULL_VALUE.equals(parts[1]) ? null : new BigDecimal(parts[1]);
+        return new CryptocurrencyCursor(sort, lastValue, Long.valueOf(parts[2]));
+    }
+
+    public String encode() {
+        var value = lastValue != null ? lastValue.toPlainString() : NULL_VALUE;
+        var token = sort + ";" + value + ";" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+}
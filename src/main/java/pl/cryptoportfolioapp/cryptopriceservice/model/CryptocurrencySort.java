@@ -0,0 +1,29 @@
+package pl.cryptoportfolioapp.cryptopriceservice.model;
+
+/**
+ * Order of a cryptocurrency listing, written like {@code percentChange24h,desc}. Ties are broken by
+ * the cryptocurrency id in the same direction, so every position in the listing is unique.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public record CryptocurrencySort(CryptocurrencySortField field, boolean descending) {
+
+    public static final CryptocurrencySort BY_ID = new CryptocurrencySort(CryptocurrencySortField.ID, false);
+
+    public static CryptocurrencySort parse(String source) {
+        var parts = source.split(",", -1);
+        if (parts.length > 2)
+            throw new IllegalArgumentException(String.format("Unsupported sort: %s", source));
+        var field = CryptocurrencySortField.fromCode(parts[0].trim());
+        if (parts.length == 1 || parts[1].trim().equalsIgnoreCase("asc"))
+            return new CryptocurrencySort(field, false);
+        if (parts[1].trim().equalsIgnoreCase("desc"))
+            return new CryptocurrencySort(field, true);
+        throw new IllegalArgumentException(String.format("Unsupported sort direction: %s", parts[1]));
+    }
+
+    @Override
+    public String toString() {
+        return field.getCode() + (descending ? ",desc" : ",asc");
+    }
+}
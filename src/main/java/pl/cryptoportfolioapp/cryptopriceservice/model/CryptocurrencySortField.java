@@ -0,0 +1,50 @@
+package pl.cryptoportfolioapp.cryptopriceservice.model;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Fields a cryptocurrency listing can be ordered by, codes follow the JSON property names. Every price field here
+ * has an index with the cryptocurrency id on {@code price}, other fields are not offered so that the frequently
+ * updated table does not maintain an index per percent change.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public enum CryptocurrencySortField {
+    ID("id", null, price -> null),
+    PRICE_CURRENT("priceCurrent", "priceCurrent", Price::getPriceCurrent),
+    PERCENT_CHANGE_24H("percentChange24h", "percentChange24h", Price::getPercentChange24h);
+
+    private final String code;
+    private final String priceAttribute;
+    private final Function<Price, BigDecimal> priceValue;
+
+    CryptocurrencySortField(String code, String priceAttribute, Function<Price, BigDecimal> priceValue) {
+        this.code = code;
+        this.priceAttribute = priceAttribute;
+        this.priceValue = priceValue;
+    }
+
+    public static CryptocurrencySortField fromCode(String code) {
+        return Arrays.stream(values())
+                .filter(field -> field.code.equals(code))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(String.format("Unsupported sort field: %s", code)));
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return attribute of {@link Price} the listing is ordered by, null when ordered by the cryptocurrency id
+     */
+    public String getPriceAttribute() {
+        return priceAttribute;
+    }
+
+    public BigDecimal getValue(Cryptocurrency cryptocurrency) {
+        return cryptocurrency.getPrice() != null ? priceValue.apply(cryptocurrency.getPrice()) : null;
+    }
+}
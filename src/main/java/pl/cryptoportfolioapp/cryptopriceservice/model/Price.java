@@ -10,7 +10,11 @@ import java.time.LocalDateTime;
 @Entity(name = "Price")
 @Table(name = "price", uniqueConstraints = @UniqueConstraint(
         name = "UniqueCryptocurrency",
-        columnNames = "cryptocurrency_id")
+        columnNames = "cryptocurrency_id"),
+        indexes = {
+                @Index(name = "IdxPriceCurrent", columnList = "price_current, cryptocurrency_id"),
+                @Index(name = "IdxPercentChange24h", columnList = "percent_change_24h, cryptocurrency_id")
+        }
 )
 @NoArgsConstructor
 @AllArgsConstructor
@@ -19,6 +23,11 @@ import java.time.LocalDateTime;
 @Builder
 public class Price {
 
+    /**
+     * Stays on IDENTITY, a refresh only updates existing rows and those updates are batched with it as well.
+     * New rows are also written by {@code PriceBulkWriter}, {@code CryptocurrencyBatchWriter} and the SQL fixtures,
+     * which all rely on AUTO_INCREMENT.
+     */
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id", nullable = false)
@@ -0,0 +1,56 @@
+package pl.cryptoportfolioapp.cryptopriceservice.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity(name = "PriceCandle")
+@Table(name = "price_candle")
+@IdClass(PriceCandle.PriceCandleId.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder(toBuilder = true)
+public class PriceCandle {
+
+    @Id
+    @Column(name = "cryptocurrency_id", nullable = false)
+    private Long cryptocurrencyId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "candle_interval", nullable = false, length = 20)
+    private CandleInterval interval;
+
+    @Id
+    @Column(name = "open_time", nullable = false)
+    private LocalDateTime openTime;
+
+    @Column(name = "price_open", precision = 24, scale = 12, nullable = false)
+    private BigDecimal priceOpen;
+
+    @Column(name = "price_high", precision = 24, scale = 12, nullable = false)
+    private BigDecimal priceHigh;
+
+    @Column(name = "price_low", precision = 24, scale = 12, nullable = false)
+    private BigDecimal priceLow;
+
+    @Column(name = "price_close", precision = 24, scale = 12, nullable = false)
+    private BigDecimal priceClose;
+
+    @Column(name = "ticks", nullable = false)
+    private Integer ticks;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceCandleId implements Serializable {
+        private Long cryptocurrencyId;
+        private CandleInterval interval;
+        private LocalDateTime openTime;
+    }
+}
@@ -0,0 +1,60 @@
+package pl.cryptoportfolioapp.cryptopriceservice.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only price history. The table is range partitioned by day on {@code ts}, which is why
+ * the cryptocurrency is kept as a plain column: MySQL does not allow foreign keys on partitioned tables.
+ */
+@Entity(name = "PriceTick")
+@Table(name = "price_tick")
+@IdClass(PriceTick.PriceTickId.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class PriceTick {
+
+    @Id
+    @Column(name = "cryptocurrency_id", nullable = false)
+    private Long cryptocurrencyId;
+
+    @Id
+    @Column(name = "ts", nullable = false)
+    private LocalDateTime ts;
+
+    @Column(name = "price_current", precision = 24, scale = 12)
+    private BigDecimal priceCurrent;
+
+    @Column(name = "percent_change_1h", precision = 24, scale = 12)
+    private BigDecimal percentChange1h;
+
+    @Column(name = "percent_change_24h", precision = 24, scale = 12)
+    private BigDecimal percentChange24h;
+
+    @Column(name = "percent_change_7d", precision = 24, scale = 12)
+    private BigDecimal percentChange7d;
+
+    @Column(name = "percent_change_30d", precision = 24, scale = 12)
+    private BigDecimal percentChange30d;
+
+    @Column(name = "percent_change_60d", precision = 24, scale = 12)
+    private BigDecimal percentChange60d;
+
+    @Column(name = "percent_change_90d", precision = 24, scale = 12)
+    private BigDecimal percentChange90d;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceTickId implements Serializable {
+        private Long cryptocurrencyId;
+        private LocalDateTime ts;
+    }
+}
@@ -0,0 +1,37 @@
+package pl.cryptoportfolioapp.cryptopriceservice.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Cluster wide lease of a refresh job. The row is written and read only through
+ * {@link pl.cryptoportfolioapp.cryptopriceservice.repository.RefreshLockRepository}, the mapping just
+ * keeps the table in the generated schema.
+ */
+@Entity(name = "RefreshLock")
+@Table(name = "refresh_lock")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class RefreshLock {
+
+    @Id
+    @Column(name = "name", nullable = false, length = 64)
+    private String name;
+
+    @Column(name = "owner", nullable = false, length = 128)
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false, columnDefinition = "DATETIME(3)")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "acquired_at", nullable = false, columnDefinition = "DATETIME(3)")
+    private LocalDateTime acquiredAt;
+
+    @Column(name = "completed_at", columnDefinition = "DATETIME(3)")
+    private LocalDateTime completedAt;
+}
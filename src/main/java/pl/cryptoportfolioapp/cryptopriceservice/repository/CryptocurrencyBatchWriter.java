@@ -0,0 +1,154 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Registers many cryptocurrencies with their empty prices through JDBC batches instead of a cascaded
+ * {@code save} per entity. A row clashing with a unique key, e.g. one registered concurrently, is skipped
+ * instead of failing the whole batch. Every batch stamps its rows with its own {@code last_update}, unique within
+ * the instance, and rows read back by coinMarketId count as inserted only when they carry that stamp, so rows
+ * of a concurrent batch with the same keys are never claimed. Their ids are used for the price rows.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Repository
+@Slf4j
+public class CryptocurrencyBatchWriter {
+
+    private static final String INSERT_CRYPTOCURRENCY_SQL = """
+            INSERT INTO cryptocurrency (name, symbol, coin_market_id, last_update)
+            VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE id = id
+            """;
+    private static final String INSERT_PRICE_SQL = """
+            INSERT IGNORE INTO price (cryptocurrency_id, last_update)
+            VALUES (?, ?)
+            """;
+
+    private final AtomicReference<LocalDateTime> lastBatchStamp = new AtomicReference<>(LocalDateTime.MIN);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${cryptocurrency.batch.writer.batch.size:1000}")
+    private int batchSize = 1_000;
+
+    @Value("${cryptocurrency.repository.in.list.chunk.size:1000}")
+    private int inListChunkSize = 1_000;
+
+    /**
+     * @return lower case names and symbols and coinMarketIds among the given ones which are already registered
+     */
+    public ExistingKeys findExistingKeys(Collection<String> names, Collection<String> symbols,
+                                         Collection<Long> coinMarketIds) {
+        var existingKeys = new ExistingKeys(new HashSet<>(), new HashSet<>(), new HashSet<>());
+        selectIn("name", names, value -> existingKeys.names().add(((String) value).toLowerCase(Locale.ROOT)));
+        selectIn("symbol", symbols, value -> existingKeys.symbols().add(((String) value).toLowerCase(Locale.ROOT)));
+        selectIn("coin_market_id", coinMarketIds, value -> existingKeys.coinMarketIds().add(((Number) value).longValue()));
+        return existingKeys;
+    }
+
+    /**
+     * Inserts cryptocurrencies together with their prices and sets the ids and last update of the inserted ones.
+     *
+     * @return cryptocurrencies actually inserted, the others clashed with a row registered in the meantime
+     */
+    @Transactional
+    public List<Cryptocurrency> insert(List<Cryptocurrency> cryptocurrencies) {
+        if (cryptocurrencies.isEmpty())
+            return List.of();
+        var batchStamp = nextBatchStamp();
+        cryptocurrencies.forEach(cryptocurrency -> cryptocurrency.setLastUpdate(batchStamp));
+        jdbcTemplate.batchUpdate(INSERT_CRYPTOCURRENCY_SQL, cryptocurrencies, batchSize, (ps, cryptocurrency) -> {
+            ps.setString(1, cryptocurrency.getName());
+            ps.setString(2, cryptocurrency.getSymbol());
+            ps.setLong(3, cryptocurrency.getCoinMarketId());
+            ps.setObject(4, cryptocurrency.getLastUpdate());
+        });
+
+        var rowsByCoinMarketId = new HashMap<Long, InsertedRow>(cryptocurrencies.size() * 2);
+        forEachChunk(cryptocurrencies.stream().map(Cryptocurrency::getCoinMarketId).toList(), chunk ->
+                jdbcTemplate.query("SELECT id, last_update, coin_market_id FROM cryptocurrency WHERE coin_market_id IN ("
+                        + placeholders(chunk.size()) + ")", (RowCallbackHandler) resultSet ->
+                        rowsByCoinMarketId.put(resultSet.getLong(3),
+                                new InsertedRow(resultSet.getLong(1), resultSet.getObject(2, LocalDateTime.class))),
+                        chunk.toArray()));
+        var inserted = new ArrayList<Cryptocurrency>(cryptocurrencies.size());
+        for (var cryptocurrency : cryptocurrencies) {
+            var row = rowsByCoinMarketId.get(cryptocurrency.getCoinMarketId());
+            if (row == null || !batchStamp.equals(row.lastUpdate()))
+                continue;
+            cryptocurrency.setId(row.id());
+            inserted.add(cryptocurrency);
+        }
+
+        var prices = inserted.stream()
+                .map(Cryptocurrency::getPrice)
+                .filter(Objects::nonNull)
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_PRICE_SQL, prices, batchSize, (ps, price) -> {
+            ps.setLong(1, price.getCryptocurrency().getId());
+            ps.setObject(2, price.getLastUpdate());
+        });
+        log.info("Inserted {} of {} cryptocurrencies with {} prices", inserted.size(), cryptocurrencies.size(),
+                prices.size());
+        return inserted;
+    }
+
+    /**
+     * @return current time at the microsecond precision of the {@code last_update} column, later than the stamp
+     * of any previous batch of this instance
+     */
+    private LocalDateTime nextBatchStamp() {
+        var now = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+        return lastBatchStamp.updateAndGet(last -> now.isAfter(last) ? now : last.plus(1, ChronoUnit.MICROS));
+    }
+
+    /**
+     * Matches case-insensitively under the default {@code _ci} collation of the name and symbol columns.
+     */
+    private void selectIn(String column, Collection<?> values, Consumer<Object> action) {
+        forEachChunk(new ArrayList<>(values), chunk ->
+                jdbcTemplate.query("SELECT " + column + " FROM cryptocurrency WHERE " + column + " IN ("
+                                + placeholders(chunk.size()) + ")",
+                        (RowCallbackHandler) resultSet -> action.accept(resultSet.getObject(1)),
+                        chunk.toArray()));
+    }
+
+    private <T> void forEachChunk(List<T> values, Consumer<List<T>> action) {
+        for (var from = 0; from < values.size(); from += inListChunkSize)
+            action.accept(values.subList(from, Math.min(from + inListChunkSize, values.size())));
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    public record ExistingKeys(Set<String> names, Set<String> symbols, Set<Long> coinMarketIds) {
+    }
+
+    private record InsertedRow(long id, LocalDateTime lastUpdate) {
+    }
+}
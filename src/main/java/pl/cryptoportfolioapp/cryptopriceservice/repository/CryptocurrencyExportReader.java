@@ -0,0 +1,75 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Reads all cryptocurrencies with their prices row by row for exports. The statement is forward only and read only
+ * with fetch size {@link Integer#MIN_VALUE}, which makes the MySQL driver stream rows from the server instead of
+ * loading the whole result set, so memory stays constant regardless of the table size. The connection is held
+ * until the last row is consumed.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Repository
+public class CryptocurrencyExportReader {
+
+    private static final String SELECT_WITH_PRICE_SQL = """
+            SELECT c.id, c.name, c.symbol, c.coin_market_id, c.last_update,
+                   p.id, p.price_current, p.percent_change_1h, p.percent_change_24h, p.percent_change_7d,
+                   p.percent_change_30d, p.percent_change_60d, p.percent_change_90d, p.last_update
+            FROM cryptocurrency c
+            LEFT JOIN price p ON p.cryptocurrency_id = c.id
+            ORDER BY c.id
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Passes every cryptocurrency with its price to {@code action} in id order, entities are detached
+     * and not kept after the call.
+     */
+    public void forEachWithPrice(Consumer<Cryptocurrency> action) {
+        jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(SELECT_WITH_PRICE_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            return ps;
+        }, (RowCallbackHandler) resultSet -> action.accept(mapRow(resultSet)));
+    }
+
+    private static Cryptocurrency mapRow(ResultSet resultSet) throws SQLException {
+        var cryptocurrency = Cryptocurrency.builder()
+                .id(resultSet.getLong(1))
+                .name(resultSet.getString(2))
+                .symbol(resultSet.getString(3))
+                .coinMarketId(resultSet.getLong(4))
+                .lastUpdate(resultSet.getObject(5, LocalDateTime.class))
+                .build();
+        var priceId = resultSet.getLong(6);
+        if (!resultSet.wasNull())
+            cryptocurrency.setPrice(Price.builder()
+                    .id(priceId)
+                    .cryptocurrency(cryptocurrency)
+                    .priceCurrent(resultSet.getBigDecimal(7))
+                    .percentChange1h(resultSet.getBigDecimal(8))
+                    .percentChange24h(resultSet.getBigDecimal(9))
+                    .percentChange7d(resultSet.getBigDecimal(10))
+                    .percentChange30d(resultSet.getBigDecimal(11))
+                    .percentChange60d(resultSet.getBigDecimal(12))
+                    .percentChange90d(resultSet.getBigDecimal(13))
+                    .lastUpdate(resultSet.getObject(14, LocalDateTime.class))
+                    .build());
+        return cryptocurrency;
+    }
+}
@@ -2,17 +2,14 @@ package pl.cryptoportfolioapp.cryptopriceservice.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
 
 import java.util.List;
 
 @Repository
-public interface CryptocurrencyRepository extends JpaRepository<Cryptocurrency, Long> {
-    @Query(value = "SELECT * FROM cryptocurrency " +
-            "WHERE name in :name " +
-            "ORDER BY id ASC", nativeQuery = true)
-    List<Cryptocurrency> findByName(@Param("name") List<String> name);
+public interface CryptocurrencyRepository extends JpaRepository<Cryptocurrency, Long>, CryptocurrencyRepositoryCustom {
+    @Query("SELECT c FROM Cryptocurrency c LEFT JOIN FETCH c.price ORDER BY c.id ASC")
+    List<Cryptocurrency> findAllWithPrice();
 
 }
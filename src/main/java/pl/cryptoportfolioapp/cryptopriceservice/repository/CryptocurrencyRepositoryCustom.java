@@ -0,0 +1,34 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencyCursor;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
+
+import java.util.List;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+public interface CryptocurrencyRepositoryCustom {
+
+    /**
+     * Keyset page of cryptocurrencies with their prices. Instead of an offset the query continues strictly after
+     * the cursor position, so it reads only {@code limit} rows from an index ordered by the sort column and id.
+     *
+     * @param after position of the last cryptocurrency of the previous page, null for the first page
+     */
+    List<Cryptocurrency> findPage(CryptocurrencySort sort, CryptocurrencyCursor after, int limit);
+
+    /**
+     * Case-insensitive lookup by name on the unique name index, prices are fetched in the same query.
+     * Long lists are queried in chunks to stay within IN list limits.
+     *
+     * @return cryptocurrencies ordered by id
+     */
+    List<Cryptocurrency> findByName(List<String> name);
+
+    /**
+     * Case-insensitive lookup by symbol, works like {@link #findByName(List)}.
+     */
+    List<Cryptocurrency> findBySymbol(List<String> symbol);
+}
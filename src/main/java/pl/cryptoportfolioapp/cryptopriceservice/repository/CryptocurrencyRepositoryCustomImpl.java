@@ -0,0 +1,113 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencyCursor;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Queries fetching prices together with cryptocurrencies. MySQL orders NULLs first ascending and last
+ * descending, the keyset predicates follow that order so cryptocurrencies without a price value are neither
+ * skipped nor repeated.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public class CryptocurrencyRepositoryCustomImpl implements CryptocurrencyRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${cryptocurrency.repository.in.list.chunk.size:1000}")
+    private int inListChunkSize = 1_000;
+
+    @Override
+    public List<Cryptocurrency> findByName(List<String> name) {
+        return findWithPriceIn("name", name);
+    }
+
+    @Override
+    public List<Cryptocurrency> findBySymbol(List<String> symbol) {
+        return findWithPriceIn("symbol", symbol);
+    }
+
+    @Override
+    public List<Cryptocurrency> findPage(CryptocurrencySort sort, CryptocurrencyCursor after, int limit) {
+        var attribute = sort.field().getPriceAttribute();
+        var direction = sort.descending() ? "DESC" : "ASC";
+        var comparison = sort.descending() ? "<" : ">";
+        var jpql = new StringBuilder();
+        if (attribute == null) {
+            jpql.append("SELECT c FROM Cryptocurrency c LEFT JOIN FETCH c.price");
+            if (after != null)
+                jpql.append(" WHERE c.id ").append(comparison).append(" :lastId");
+            jpql.append(" ORDER BY c.id ").append(direction);
+        } else {
+            var value = "p." + attribute;
+            var id = "p.cryptocurrency.id";
+            jpql.append("SELECT c FROM Cryptocurrency c JOIN FETCH c.price p");
+            if (after != null) {
+                jpql.append(" WHERE ");
+                if (after.lastValue() == null && !sort.descending())
+                    jpql.append("(").append(value).append(" IS NULL AND ").append(id).append(" > :lastId) OR ")
+                            .append(value).append(" IS NOT NULL");
+                else if (after.lastValue() == null)
+                    jpql.append(value).append(" IS NULL AND ").append(id).append(" < :lastId");
+                else {
+                    jpql.append(value).append(" ").append(comparison).append(" :lastValue OR (")
+                            .append(value).append(" = :lastValue AND ").append(id).append(" ")
+                            .append(comparison).append(" :lastId)");
+                    if (sort.descending())
+                        jpql.append(" OR ").append(value).append(" IS NULL");
+                }
+            }
+            jpql.append(" ORDER BY ").append(value).append(" ").append(direction)
+                    .append(", ").append(id).append(" ").append(direction);
+        }
+
+        var query = entityManager.createQuery(jpql.toString(), Cryptocurrency.class)
+                .setMaxResults(limit);
+        if (after != null) {
+            query.setParameter("lastId", after.lastId());
+            if (attribute != null && after.lastValue() != null)
+                query.setParameter("lastValue", after.lastValue());
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * The {@code _ci} collation of the column makes the match case-insensitive, so the unique index is used.
+     * Values differing only in case are sent once.
+     */
+    private List<Cryptocurrency> findWithPriceIn(String attribute, List<String> values) {
+        var normalized = values.stream()
+                .filter(Objects::nonNull)
+                .map(value -> value.toLowerCase(Locale.ROOT))
+                .distinct()
+                .toList();
+        var jpql = "SELECT c FROM Cryptocurrency c LEFT JOIN FETCH c.price WHERE c." + attribute +
+                " IN :values ORDER BY c.id ASC";
+        if (normalized.size() <= inListChunkSize)
+            return normalized.isEmpty() ? List.of() : entityManager.createQuery(jpql, Cryptocurrency.class)
+                    .setParameter("values", normalized)
+                    .getResultList();
+
+        var cryptocurrencies = new LinkedHashMap<Long, Cryptocurrency>();
+        for (var from = 0; from < normalized.size(); from += inListChunkSize)
+            entityManager.createQuery(jpql, Cryptocurrency.class)
+                    .setParameter("values", normalized.subList(from, Math.min(from + inListChunkSize, normalized.size())))
+                    .getResultList()
+                    .forEach(cryptocurrency -> cryptocurrencies.putIfAbsent(cryptocurrency.getId(), cryptocurrency));
+        return cryptocurrencies.values()
+                .stream()
+                .sorted(Comparator.comparing(Cryptocurrency::getId))
+                .toList();
+    }
+}
@@ -0,0 +1,65 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+/**
+ * Writes refreshed prices straight through JDBC, without loading or merging {@link Price} entities.
+ * Each batch is rewritten by the MySQL driver into one multi-row {@code INSERT ... ON DUPLICATE KEY UPDATE}
+ * keyed on the unique {@code cryptocurrency_id} column.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Repository
+@Slf4j
+public class PriceBulkWriter {
+
+    private static final String UPSERT_PRICE_SQL = """
+            INSERT INTO price (cryptocurrency_id, price_current, percent_change_1h, percent_change_24h,
+                               percent_change_7d, percent_change_30d, percent_change_60d, percent_change_90d, last_update)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE price_current = VALUES(price_current),
+                                    percent_change_1h = VALUES(percent_change_1h),
+                                    percent_change_24h = VALUES(percent_change_24h),
+                                    percent_change_7d = VALUES(percent_change_7d),
+                                    percent_change_30d = VALUES(percent_change_30d),
+                                    percent_change_60d = VALUES(percent_change_60d),
+                                    percent_change_90d = VALUES(percent_change_90d),
+                                    last_update = VALUES(last_update)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${price.update.bulk.writer.batch.size:1000}")
+    private int batchSize;
+
+    @Transactional
+    public void write(Collection<Price> prices) {
+        if (prices.isEmpty())
+            return;
+        var lastUpdate = LocalDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(UPSERT_PRICE_SQL, prices, batchSize, (ps, price) -> {
+            price.setLastUpdate(lastUpdate);
+            ps.setLong(1, price.getCryptocurrency().getId());
+            ps.setBigDecimal(2, price.getPriceCurrent());
+            ps.setBigDecimal(3, price.getPercentChange1h());
+            ps.setBigDecimal(4, price.getPercentChange24h());
+            ps.setBigDecimal(5, price.getPercentChange7d());
+            ps.setBigDecimal(6, price.getPercentChange30d());
+            ps.setBigDecimal(7, price.getPercentChange60d());
+            ps.setBigDecimal(8, price.getPercentChange90d());
+            ps.setObject(9, lastUpdate);
+        });
+        log.info("Bulk written {} prices", prices.size());
+    }
+}
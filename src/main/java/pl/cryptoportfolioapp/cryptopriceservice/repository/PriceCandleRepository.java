@@ -0,0 +1,18 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CandleInterval;
+import pl.cryptoportfolioapp.cryptopriceservice.model.PriceCandle;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PriceCandleRepository extends JpaRepository<PriceCandle, PriceCandle.PriceCandleId> {
+
+    List<PriceCandle> findByCryptocurrencyIdAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(Long cryptocurrencyId,
+                                                                                           CandleInterval interval,
+                                                                                           LocalDateTime from,
+                                                                                           LocalDateTime to);
+}
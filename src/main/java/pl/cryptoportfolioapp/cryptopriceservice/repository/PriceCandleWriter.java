@@ -0,0 +1,55 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.cryptoportfolioapp.cryptopriceservice.model.PriceCandle;
+
+import java.util.Collection;
+
+/**
+ * Flushes closed candles to {@code price_candle}. A candle already written for the same bucket,
+ * e.g. before a restart, is merged instead of overwritten.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Repository
+@Slf4j
+public class PriceCandleWriter {
+
+    private static final String UPSERT_CANDLE_SQL = """
+            INSERT INTO price_candle (cryptocurrency_id, candle_interval, open_time,
+                                      price_open, price_high, price_low, price_close, ticks)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE price_high = GREATEST(price_high, VALUES(price_high)),
+                                    price_low = LEAST(price_low, VALUES(price_low)),
+                                    price_close = VALUES(price_close),
+                                    ticks = ticks + VALUES(ticks)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${price.candle.writer.batch.size:1000}")
+    private int batchSize;
+
+    @Transactional
+    public void write(Collection<PriceCandle> candles) {
+        if (candles.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate(UPSERT_CANDLE_SQL, candles, batchSize, (ps, candle) -> {
+            ps.setLong(1, candle.getCryptocurrencyId());
+            ps.setString(2, candle.getInterval().name());
+            ps.setObject(3, candle.getOpenTime());
+            ps.setBigDecimal(4, candle.getPriceOpen());
+            ps.setBigDecimal(5, candle.getPriceHigh());
+            ps.setBigDecimal(6, candle.getPriceLow());
+            ps.setBigDecimal(7, candle.getPriceClose());
+            ps.setInt(8, candle.getTicks());
+        });
+        log.info("Flushed {} closed candles", candles.size());
+    }
+}
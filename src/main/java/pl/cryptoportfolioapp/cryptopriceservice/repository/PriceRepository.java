@@ -4,6 +4,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
 
+import java.util.Collection;
+
 @Repository
-public interface PriceRepository extends JpaRepository<Price, Long> {
+public interface PriceRepository extends JpaRepository<Price, Long>, PriceRepositoryCustom {
+
+    long countByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,17 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.util.Collection;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+public interface PriceRepositoryCustom {
+
+    /**
+     * Reattaches already persisted prices to the current session without selecting them first,
+     * and flushes the changes as plain UPDATE statements sent in JDBC batches of {@code price.update.jdbc.batch.size}.
+     */
+    void updateAll(Collection<Price> prices);
+}
@@ -0,0 +1,41 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+
+/**
+ * Price updates of a refresh are flushed with their own JDBC batch size instead of the global
+ * {@code hibernate.jdbc.batch_size}, so a full watchlist reaches the database in a few rewritten batches.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public class PriceRepositoryCustomImpl implements PriceRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${price.update.jdbc.batch.size:1000}")
+    private int batchSize = 1_000;
+
+    @Override
+    @Transactional
+    public void updateAll(Collection<Price> prices) {
+        var session = entityManager.unwrap(Session.class);
+        var previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        try {
+            prices.stream()
+                    .filter(price -> !session.contains(price))
+                    .forEach(session::update);
+            session.flush();
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.util.Collection;
+
+/**
+ * Appends refreshed prices to the {@code price_tick} history table. Rows are never updated,
+ * a repeated tick for the same cryptocurrency and timestamp is ignored.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Repository
+@Slf4j
+public class PriceTickWriter {
+
+    private static final String INSERT_TICK_SQL = """
+            INSERT IGNORE INTO price_tick (cryptocurrency_id, ts, price_current, percent_change_1h, percent_change_24h,
+                                           percent_change_7d, percent_change_30d, percent_change_60d, percent_change_90d)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${price.tick.writer.batch.size:1000}")
+    private int batchSize;
+
+    @Transactional
+    public void append(Collection<Price> prices) {
+        if (prices.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate(INSERT_TICK_SQL, prices, batchSize, (ps, price) -> {
+            ps.setLong(1, price.getCryptocurrency().getId());
+            ps.setObject(2, price.getLastUpdate());
+            ps.setBigDecimal(3, price.getPriceCurrent());
+            ps.setBigDecimal(4, price.getPercentChange1h());
+            ps.setBigDecimal(5, price.getPercentChange24h());
+            ps.setBigDecimal(6, price.getPercentChange7d());
+            ps.setBigDecimal(7, price.getPercentChange30d());
+            ps.setBigDecimal(8, price.getPercentChange60d());
+            ps.setBigDecimal(9, price.getPercentChange90d());
+        });
+        log.info("Appended {} price ticks", prices.size());
+    }
+}
@@ -0,0 +1,74 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+/**
+ * Leases in the {@code refresh_lock} table. A lease is taken with a single upsert that changes the owner only
+ * when the current lease expired, or extends it when the caller already owns it. Expiry is compared with
+ * the database clock, so the clocks of the instances do not need to agree. Every acquisition stamps
+ * {@code acquired_at} and the holder stamps {@code completed_at} once its job finished, so other instances
+ * can wait for the job without taking the lease.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Repository
+@Slf4j
+public class RefreshLockRepository {
+
+    private static final String ACQUIRE_LEASE_SQL = """
+            INSERT INTO refresh_lock (name, owner, expires_at, acquired_at)
+            VALUES (?, ?, NOW(3) + INTERVAL ? MICROSECOND, NOW(3))
+            ON DUPLICATE KEY UPDATE acquired_at = IF(expires_at < NOW(3) OR owner = VALUES(owner), NOW(3), acquired_at),
+                                    owner = IF(expires_at < NOW(3) OR owner = VALUES(owner), VALUES(owner), owner),
+                                    expires_at = IF(owner = VALUES(owner), VALUES(expires_at), expires_at)
+            """;
+    private static final String SELECT_OWNER_SQL = "SELECT owner FROM refresh_lock WHERE name = ?";
+    private static final String COMPLETE_LEASE_SQL =
+            "UPDATE refresh_lock SET completed_at = NOW(3) WHERE name = ? AND owner = ?";
+    private static final String SELECT_RUNNING_SQL = """
+            SELECT COUNT(*) FROM refresh_lock
+            WHERE name = ? AND expires_at >= NOW(3) AND (completed_at IS NULL OR completed_at < acquired_at)
+            """;
+    private static final String RELEASE_LEASE_SQL = "DELETE FROM refresh_lock WHERE name = ? AND owner = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return true when the caller holds the lease for the next {@code ttl}
+     */
+    @Transactional
+    public boolean tryAcquire(String name, String owner, Duration ttl) {
+        jdbcTemplate.update(ACQUIRE_LEASE_SQL, name, owner, ttl.toNanos() / 1_000);
+        var currentOwner = jdbcTemplate.queryForObject(SELECT_OWNER_SQL, String.class, name);
+        log.debug("Lease {} is held by {}", name, currentOwner);
+        return owner.equals(currentOwner);
+    }
+
+    /**
+     * Marks the job of the current lease as finished, the lease itself is kept until it expires.
+     */
+    @Transactional
+    public void complete(String name, String owner) {
+        jdbcTemplate.update(COMPLETE_LEASE_SQL, name, owner);
+    }
+
+    /**
+     * @return true while the lease is held and its holder has not completed the job yet
+     */
+    public boolean isRunning(String name) {
+        var running = jdbcTemplate.queryForObject(SELECT_RUNNING_SQL, Long.class, name);
+        return running != null && running > 0;
+    }
+
+    @Transactional
+    public void release(String name, String owner) {
+        jdbcTemplate.update(RELEASE_LEASE_SQL, name, owner);
+    }
+}
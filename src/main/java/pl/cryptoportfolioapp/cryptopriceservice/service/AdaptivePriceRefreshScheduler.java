@@ -0,0 +1,147 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.cryptoportfolioapp.cryptopriceservice.config.AdaptiveRefreshProperties;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Refreshes every cryptocurrency on the interval of its {@link RefreshTier} instead of all of them on a fixed delay.
+ * The tier follows the latest absolute {@code percentChange1h} and is raised by one for popular coins.
+ * Coins due in a tick are refreshed together, most overdue first, as long as the credits-per-minute budget allows,
+ * the rest stays due for the next tick. The budget is kept in memory, with {@code price.refresh.lock.enabled}
+ * only the instance holding the adaptive lease of {@link PriceRefreshGuard} refreshes, the others skip their ticks.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "price.refresh.adaptive.enabled", havingValue = "true")
+public class AdaptivePriceRefreshScheduler {
+
+    static final String COINS_METRIC = "price.refresh.adaptive.coins";
+
+    @Autowired
+    private CryptocurrencyService cryptocurrencyService;
+
+    @Autowired
+    private PriceUpdateService priceUpdateService;
+
+    @Autowired
+    private CryptocurrencyPopularityService cryptocurrencyPopularityService;
+
+    @Autowired
+    private PriceRefreshGuard priceRefreshGuard;
+
+    @Autowired
+    private AdaptiveRefreshProperties properties;
+
+    private final Map<Long, Instant> nextRefreshes = new HashMap<>();
+    private double availableCredits = -1;
+    private Instant lastRefill;
+
+    @Scheduled(fixedDelayString = "${price.refresh.adaptive.tick:PT1M}")
+    public void scheduledRefreshDueCryptocurrencies() {
+        refreshDueCryptocurrencies(Instant.now());
+    }
+
+    synchronized List<Price> refreshDueCryptocurrencies(Instant now) {
+        if (!priceRefreshGuard.holdAdaptiveLease(properties.getLeaseTtl())) {
+            log.debug("Skipping adaptive price refresh, lease is held by another instance");
+            return Collections.emptyList();
+        }
+        refillCredits(now);
+        var cryptocurrencies = cryptocurrencyService.getCryptocurrencies();
+        var ids = cryptocurrencies.stream()
+                .map(Cryptocurrency::getId)
+                .collect(Collectors.toSet());
+        nextRefreshes.keySet().retainAll(ids);
+
+        var dueCryptocurrencies = cryptocurrencies.stream()
+                .filter(cryptocurrency -> !nextRefreshAt(cryptocurrency).isAfter(now))
+                .sorted(Comparator.comparing(this::nextRefreshAt))
+                .toList();
+        var affordable = (int) Math.min(dueCryptocurrencies.size(),
+                (long) Math.floor(availableCredits) * properties.getIdsPerCredit());
+        var deferred = dueCryptocurrencies.size() - affordable;
+        Metrics.counter(COINS_METRIC, "outcome", "deferred").increment(deferred);
+        if (affordable == 0) {
+            if (deferred > 0)
+                log.info("Deferring {} due cryptocurrencies, no credits left", deferred);
+            return Collections.emptyList();
+        }
+
+        var refreshed = dueCryptocurrencies.subList(0, affordable);
+        availableCredits -= Math.ceil((double) affordable / properties.getIdsPerCredit());
+        log.info("Refreshing {} due cryptocurrencies, deferring {}", affordable, deferred);
+        List<Price> prices;
+        try {
+            prices = priceUpdateService.updateCryptocurrencyPrices(refreshed);
+        } catch (RuntimeException e) {
+            log.warn("Adaptive price refresh failed, cryptocurrencies stay due, reason: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+        Metrics.counter(COINS_METRIC, "outcome", "refreshed").increment(affordable);
+
+        var pricesByCryptocurrencyId = prices.stream()
+                .collect(Collectors.toMap(price -> price.getCryptocurrency().getId(), price -> price,
+                        (first, second) -> first));
+        for (var cryptocurrency : refreshed) {
+            var price = pricesByCryptocurrencyId.getOrDefault(cryptocurrency.getId(), cryptocurrency.getPrice());
+            var tier = getTier(cryptocurrency.getId(), price);
+            nextRefreshes.put(cryptocurrency.getId(), now.plus(tier.getSettings(properties).getInterval()));
+        }
+        return prices;
+    }
+
+    RefreshTier getTier(Long cryptocurrencyId, Price price) {
+        var tier = RefreshTier.NORMAL;
+        if (price != null && price.getPercentChange1h() != null) {
+            var volatility = price.getPercentChange1h().abs();
+            tier = RefreshTier.DORMANT;
+            for (var candidate : RefreshTier.values()) {
+                if (volatility.compareTo(minVolatility(candidate)) >= 0) {
+                    tier = candidate;
+                    break;
+                }
+            }
+        }
+        if (cryptocurrencyPopularityService.getRequestCount(cryptocurrencyId) >= properties.getPopularRequests())
+            tier = tier.faster();
+        return tier;
+    }
+
+    private BigDecimal minVolatility(RefreshTier tier) {
+        return tier.getSettings(properties).getMinVolatility();
+    }
+
+    private Instant nextRefreshAt(Cryptocurrency cryptocurrency) {
+        return nextRefreshes.getOrDefault(cryptocurrency.getId(), Instant.EPOCH);
+    }
+
+    private void refillCredits(Instant now) {
+        var creditsPerMinute = properties.getCreditsPerMinute();
+        if (availableCredits < 0) {
+            availableCredits = creditsPerMinute;
+        } else {
+            var elapsedMinutes = Duration.between(lastRefill, now).toMillis() / 60_000d;
+            availableCredits = Math.min(creditsPerMinute, availableCredits + elapsedMinutes * creditsPerMinute);
+        }
+        lastRefill = now;
+    }
+}
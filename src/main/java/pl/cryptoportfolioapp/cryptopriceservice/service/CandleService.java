@@ -0,0 +1,151 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.InvalidCandleRangeException;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CandleInterval;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.model.PriceCandle;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceCandleRepository;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceCandleWriter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolls refreshed prices up into OHLC candles. The open candle of every coin and interval is kept in memory
+ * and written to {@code price_candle} once its bucket is closed, either by a tick of a later bucket
+ * or by the scheduled flush, so reads never aggregate raw ticks.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class CandleService {
+
+    @Autowired
+    private PriceCandleRepository priceCandleRepository;
+
+    @Autowired
+    private PriceCandleWriter priceCandleWriter;
+
+    @Value("${price.candle.max.count:1000}")
+    private int maxCandleCount = 1_000;
+
+    private final Map<CandleKey, PriceCandle> openCandles = new HashMap<>();
+
+    public void aggregate(Collection<Price> prices) {
+        var closedCandles = new ArrayList<PriceCandle>();
+        synchronized (openCandles) {
+            for (var price : prices) {
+                if (price.getPriceCurrent() == null || price.getCryptocurrency() == null
+                        || price.getCryptocurrency().getId() == null)
+                    continue;
+                var timestamp = price.getLastUpdate() != null ? price.getLastUpdate() : LocalDateTime.now(ZoneOffset.UTC);
+                for (var interval : CandleInterval.values()) {
+                    aggregateTick(price.getCryptocurrency().getId(), interval, timestamp, price, closedCandles);
+                }
+            }
+        }
+        priceCandleWriter.write(closedCandles);
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void scheduledFlushClosedCandles() {
+        flushClosedCandles(LocalDateTime.now(ZoneOffset.UTC));
+    }
+
+    void flushClosedCandles(LocalDateTime now) {
+        var closedCandles = new ArrayList<PriceCandle>();
+        synchronized (openCandles) {
+            var iterator = openCandles.values().iterator();
+            while (iterator.hasNext()) {
+                var candle = iterator.next();
+                if (!candle.getOpenTime().plus(candle.getInterval().getDuration()).isAfter(now)) {
+                    closedCandles.add(candle);
+                    iterator.remove();
+                }
+            }
+        }
+        priceCandleWriter.write(closedCandles);
+    }
+
+    /**
+     * Closed candles come from {@code price_candle}, the open candle of the range is appended from memory,
+     * so the current bucket, e.g. today's 1d candle, is served before it is flushed.
+     *
+     * @throws InvalidCandleRangeException when from is after to or the range spans more than
+     *                                     {@code price.candle.max.count} candles of the interval
+     */
+    public List<PriceCandle> getCandles(Long cryptocurrencyId, CandleInterval interval,
+                                        LocalDateTime from, LocalDateTime to) {
+        if (from.isAfter(to))
+            throw new InvalidCandleRangeException(String.format("From %s is after to %s", from, to));
+        var fromTime = interval.bucketStart(from);
+        if (Duration.between(fromTime, to).compareTo(interval.getDuration().multipliedBy(maxCandleCount)) > 0)
+            throw new InvalidCandleRangeException(String.format("Range from %s to %s exceeds %d candles of %s",
+                    from, to, maxCandleCount, interval.getCode()));
+        var candles = new ArrayList<>(priceCandleRepository
+                .findByCryptocurrencyIdAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                        cryptocurrencyId, interval, fromTime, to));
+        PriceCandle openCandle;
+        synchronized (openCandles) {
+            openCandle = Optional.ofNullable(openCandles.get(new CandleKey(cryptocurrencyId, interval)))
+                    .map(candle -> candle.toBuilder().build())
+                    .orElse(null);
+        }
+        if (openCandle == null || openCandle.getOpenTime().isBefore(fromTime) || openCandle.getOpenTime().isAfter(to))
+            return candles;
+        candles.removeIf(candle -> candle.getOpenTime().equals(openCandle.getOpenTime()));
+        candles.add(openCandle);
+        candles.sort(Comparator.comparing(PriceCandle::getOpenTime));
+        return candles;
+    }
+
+    private void aggregateTick(Long cryptocurrencyId, CandleInterval interval, LocalDateTime timestamp,
+                               Price price, List<PriceCandle> closedCandles) {
+        var key = new CandleKey(cryptocurrencyId, interval);
+        var openTime = interval.bucketStart(timestamp);
+        var candle = openCandles.get(key);
+        if (candle != null && candle.getOpenTime().equals(openTime)) {
+            var priceCurrent = price.getPriceCurrent();
+            candle.setPriceHigh(candle.getPriceHigh().max(priceCurrent));
+            candle.setPriceLow(candle.getPriceLow().min(priceCurrent));
+            candle.setPriceClose(priceCurrent);
+            candle.setTicks(candle.getTicks() + 1);
+            return;
+        }
+        if (candle != null && candle.getOpenTime().isAfter(openTime)) {
+            log.warn("Skipped late tick of cryptocurrency id {} for closed {} candle at {}",
+                    cryptocurrencyId, interval.getCode(), openTime);
+            return;
+        }
+        if (candle != null)
+            closedCandles.add(candle);
+        openCandles.put(key, PriceCandle.builder()
+                .cryptocurrencyId(cryptocurrencyId)
+                .interval(interval)
+                .openTime(openTime)
+                .priceOpen(price.getPriceCurrent())
+                .priceHigh(price.getPriceCurrent())
+                .priceLow(price.getPriceCurrent())
+                .priceClose(price.getPriceCurrent())
+                .ticks(1)
+                .build());
+    }
+
+    private record CandleKey(Long cryptocurrencyId, CandleInterval interval) {
+    }
+}
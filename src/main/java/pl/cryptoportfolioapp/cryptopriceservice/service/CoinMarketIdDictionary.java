@@ -0,0 +1,70 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.MapDataDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Local copy of the CoinMarketCap symbol and name to coinMarketId map, so onboarding does not need an upstream
+ * call per cryptocurrency. The whole map is downloaded page by page on start and then periodically,
+ * and replaces the previous {@link CoinMarketIdIndex} as a whole.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class CoinMarketIdDictionary {
+
+    @Autowired
+    private MarketApiClientService marketApiClientService;
+
+    @Value("${api.coin.market.cap.map.dictionary.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${api.coin.market.cap.map.dictionary.page.size:5000}")
+    private int pageSize = 5_000;
+
+    private volatile CoinMarketIdIndex index = CoinMarketIdIndex.EMPTY;
+
+    @Scheduled(fixedDelayString = "${api.coin.market.cap.map.dictionary.refresh-interval:PT24H}")
+    public void scheduledRefresh() {
+        if (!enabled)
+            return;
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Cryptocurrency map download failed, keeping {} entries, reason: {}", size(), e.getMessage());
+        }
+    }
+
+    void refresh() {
+        var mapEntries = new ArrayList<CryptocurrencyMapDTO>();
+        for (var start = 1; ; start += pageSize) {
+            var page = marketApiClientService.fetchCryptocurrencyMapPage(start, pageSize)
+                    .blockOptional()
+                    .map(MapDataDTO::getData)
+                    .orElse(List.of());
+            mapEntries.addAll(page);
+            if (page.size() < pageSize)
+                break;
+        }
+        index = CoinMarketIdIndex.of(mapEntries);
+        log.info("Loaded {} cryptocurrency map entries", index.size());
+    }
+
+    public Optional<Long> findCoinMarketId(String symbol, String name) {
+        return index.find(symbol, name);
+    }
+
+    public int size() {
+        return index.size();
+    }
+}
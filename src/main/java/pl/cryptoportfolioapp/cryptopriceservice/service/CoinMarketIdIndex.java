@@ -0,0 +1,73 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Symbol and name to coinMarketId lookup over CoinMarketCap map entries, kept as parallel arrays sorted by
+ * upper case symbol and id and searched with a binary search. Several coins may share a symbol,
+ * the one with a matching name wins, otherwise the lowest id.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+final class CoinMarketIdIndex {
+
+    static final CoinMarketIdIndex EMPTY = new CoinMarketIdIndex(new String[0], new String[0], new long[0]);
+
+    private final String[] symbols;
+    private final String[] names;
+    private final long[] ids;
+
+    private CoinMarketIdIndex(String[] symbols, String[] names, long[] ids) {
+        this.symbols = symbols;
+        this.names = names;
+        this.ids = ids;
+    }
+
+    static CoinMarketIdIndex of(List<CryptocurrencyMapDTO> mapEntries) {
+        var sorted = mapEntries.stream()
+                .filter(entry -> entry.getSymbol() != null && entry.getCoinMarketId() != null)
+                .sorted(Comparator.comparing((CryptocurrencyMapDTO entry) -> normalize(entry.getSymbol()))
+                        .thenComparing(CryptocurrencyMapDTO::getCoinMarketId))
+                .toList();
+        var symbols = new String[sorted.size()];
+        var names = new String[sorted.size()];
+        var ids = new long[sorted.size()];
+        for (var i = 0; i < sorted.size(); i++) {
+            var entry = sorted.get(i);
+            symbols[i] = normalize(entry.getSymbol());
+            names[i] = entry.getName();
+            ids[i] = entry.getCoinMarketId();
+        }
+        return new CoinMarketIdIndex(symbols, names, ids);
+    }
+
+    Optional<Long> find(String symbol, String name) {
+        if (symbol == null)
+            return Optional.empty();
+        var key = normalize(symbol);
+        var index = Arrays.binarySearch(symbols, key);
+        if (index < 0)
+            return Optional.empty();
+        while (index > 0 && symbols[index - 1].equals(key))
+            index--;
+        for (var i = index; i < symbols.length && symbols[i].equals(key); i++) {
+            if (name != null && name.equalsIgnoreCase(names[i]))
+                return Optional.of(ids[i]);
+        }
+        return Optional.of(ids[index]);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,305 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.MapDataDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyBatchResultDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyPostDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.CryptocurrencyBatchTooLargeException;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.MarketApiClientException;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyBatchWriter;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Registers many cryptocurrencies at once. Every entry is validated on its own and a failing entry never fails
+ * the others, each one gets its own status. Missing coinMarketIds are resolved with the
+ * {@link CoinMarketIdDictionary} first and the rest with a single map request for all their symbols, split
+ * only when the symbols would not fit {@code api.coin.market.cap.map.symbols.chunk.size}. Accepted entries are
+ * checked against registered keys and inserted with their prices by {@link CryptocurrencyBatchWriter}, an entry
+ * losing a race with a concurrent registration is reported as a conflict on its own. The snapshot is
+ * published once.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class CryptocurrencyBatchRegistrationService {
+
+    private static final CryptocurrencyMapper mapper = CryptocurrencyMapper.INSTANCE;
+    private static final Pattern INVALID_SYMBOLS_PATTERN =
+            Pattern.compile("Invalid values? for \"symbol\": \"([^\"]*)\"");
+
+    @Autowired
+    private CryptocurrencyBatchWriter cryptocurrencyBatchWriter;
+
+    @Autowired
+    private MarketApiClientService marketApiClientService;
+
+    @Autowired
+    private CoinMarketIdDictionary coinMarketIdDictionary;
+
+    @Autowired
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${cryptocurrency.batch.max.size:5000}")
+    private int maxBatchSize = 5_000;
+
+    @Value("${api.coin.market.cap.map.symbols.chunk.size:500}")
+    private int symbolsChunkSize = 500;
+
+    public List<CryptocurrencyBatchResultDTO> registerCryptocurrencies(List<CryptocurrencyPostDTO> cryptocurrencyPostDTOS) {
+        if (cryptocurrencyPostDTOS.size() > maxBatchSize)
+            throw new CryptocurrencyBatchTooLargeException(cryptocurrencyPostDTOS.size(), maxBatchSize);
+        var results = new CryptocurrencyBatchResultDTO[cryptocurrencyPostDTOS.size()];
+        var accepted = new ArrayList<Integer>(cryptocurrencyPostDTOS.size());
+        for (var index = 0; index < cryptocurrencyPostDTOS.size(); index++) {
+            var errors = validate(cryptocurrencyPostDTOS.get(index));
+            if (errors.isEmpty())
+                accepted.add(index);
+            else
+                results[index] = failed(index, HttpStatus.BAD_REQUEST, errors);
+        }
+
+        var cryptocurrencies = resolveCoinMarketIds(cryptocurrencyPostDTOS, accepted, results);
+        var inserted = insertUnique(cryptocurrencies, results);
+        if (!inserted.isEmpty())
+            cryptocurrencySnapshotService.publish();
+        log.info("Registered {} of {} cryptocurrencies in batch", inserted.size(), cryptocurrencyPostDTOS.size());
+        return Arrays.asList(results);
+    }
+
+    private List<String> validate(CryptocurrencyPostDTO cryptocurrencyPostDTO) {
+        if (cryptocurrencyPostDTO == null)
+            return List.of("Cryptocurrency cannot be an empty");
+        return validator.validate(cryptocurrencyPostDTO)
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * @return entries with coinMarketIds by their index, entries which could not be resolved are failed in results
+     */
+    private List<IndexedCryptocurrency> resolveCoinMarketIds(List<CryptocurrencyPostDTO> cryptocurrencyPostDTOS,
+                                                             List<Integer> accepted,
+                                                             CryptocurrencyBatchResultDTO[] results) {
+        var cryptocurrencies = new ArrayList<IndexedCryptocurrency>(accepted.size());
+        var unknownSymbols = new LinkedHashSet<String>();
+        for (var index : accepted) {
+            var cryptocurrency = mapper.mapPostDtoToCryptocurrencyEntity(cryptocurrencyPostDTOS.get(index));
+            if (cryptocurrency.getCoinMarketId() == null)
+                coinMarketIdDictionary.findCoinMarketId(cryptocurrency.getSymbol(), cryptocurrency.getName())
+                        .ifPresentOrElse(cryptocurrency::setCoinMarketId,
+                                () -> unknownSymbols.add(cryptocurrency.getSymbol().toUpperCase(Locale.ROOT)));
+            cryptocurrencies.add(new IndexedCryptocurrency(index, cryptocurrency));
+        }
+        if (unknownSymbols.isEmpty())
+            return cryptocurrencies;
+
+        var symbolLookup = new SymbolLookup();
+        for (var symbols : partition(new ArrayList<>(unknownSymbols)))
+            lookupSymbols(symbols, symbolLookup);
+        var coinMarketIdIndex = CoinMarketIdIndex.of(symbolLookup.mapEntries);
+
+        var resolved = new ArrayList<IndexedCryptocurrency>(cryptocurrencies.size());
+        for (var indexedCryptocurrency : cryptocurrencies) {
+            var cryptocurrency = indexedCryptocurrency.cryptocurrency();
+            if (cryptocurrency.getCoinMarketId() == null) {
+                var coinMarketId = coinMarketIdIndex.find(cryptocurrency.getSymbol(), cryptocurrency.getName());
+                if (coinMarketId.isEmpty()) {
+                    var lookupFailure = symbolLookup.failures.get(cryptocurrency.getSymbol().toUpperCase(Locale.ROOT));
+                    results[indexedCryptocurrency.index()] = lookupFailure != null ?
+                            failed(indexedCryptocurrency.index(), HttpStatus.BAD_GATEWAY,
+                                    List.of("Coin market ID lookup failed: " + lookupFailure)) :
+                            failed(indexedCryptocurrency.index(), HttpStatus.NOT_FOUND,
+                                    List.of("Coin market ID not found for symbol: " + cryptocurrency.getSymbol()));
+                    continue;
+                }
+                cryptocurrency.setCoinMarketId(coinMarketId.get());
+            }
+            resolved.add(indexedCryptocurrency);
+        }
+        return resolved;
+    }
+
+    /**
+     * Upstream rejects a whole map request with 400 when any symbol is invalid. The invalid symbols named in the
+     * error message are dropped and the rest is looked up again, when the message names none the symbols are
+     * bisected until the invalid ones are isolated. Dropped symbols end up as not found.
+     */
+    private void lookupSymbols(List<String> symbols, SymbolLookup symbolLookup) {
+        if (symbols.isEmpty())
+            return;
+        try {
+            marketApiClientService.fetchCryptoMarketIdsBySymbols(symbols)
+                    .blockOptional()
+                    .map(MapDataDTO::getData)
+                    .ifPresent(symbolLookup.mapEntries::addAll);
+        } catch (MarketApiClientException e) {
+            if (e.getHttpStatus() != HttpStatus.BAD_REQUEST) {
+                symbolLookup.fail(symbols, e);
+                return;
+            }
+            var invalidSymbols = parseInvalidSymbols(e.getServerMessage());
+            var validSymbols = symbols.stream()
+                    .filter(symbol -> !invalidSymbols.contains(symbol))
+                    .toList();
+            if (validSymbols.size() < symbols.size()) {
+                log.info("Dropping invalid symbols {} from coin market ID lookup", invalidSymbols);
+                lookupSymbols(validSymbols, symbolLookup);
+            } else if (symbols.size() > 1) {
+                lookupSymbols(symbols.subList(0, symbols.size() / 2), symbolLookup);
+                lookupSymbols(symbols.subList(symbols.size() / 2, symbols.size()), symbolLookup);
+            }
+        } catch (RuntimeException e) {
+            symbolLookup.fail(symbols, e);
+        }
+    }
+
+    /**
+     * Reads symbols out of messages like {@code Invalid values for "symbol": "ABCX,DEFX"}.
+     */
+    private static Set<String> parseInvalidSymbols(String serverMessage) {
+        var matcher = INVALID_SYMBOLS_PATTERN.matcher(serverMessage != null ? serverMessage : "");
+        if (!matcher.find())
+            return Set.of();
+        return Arrays.stream(matcher.group(1).split(","))
+                .map(symbol -> symbol.trim().toUpperCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Inserts entries which neither clash with registered cryptocurrencies nor with earlier entries of the batch.
+     */
+    private List<IndexedCryptocurrency> insertUnique(List<IndexedCryptocurrency> cryptocurrencies,
+                                                     CryptocurrencyBatchResultDTO[] results) {
+        if (cryptocurrencies.isEmpty())
+            return cryptocurrencies;
+        var existingKeys = cryptocurrencyBatchWriter.findExistingKeys(
+                cryptocurrencies.stream().map(indexed -> indexed.cryptocurrency().getName()).toList(),
+                cryptocurrencies.stream().map(indexed -> indexed.cryptocurrency().getSymbol()).toList(),
+                cryptocurrencies.stream().map(indexed -> indexed.cryptocurrency().getCoinMarketId()).toList());
+        var names = new HashSet<>(existingKeys.names());
+        var symbols = new HashSet<>(existingKeys.symbols());
+        var coinMarketIds = new HashSet<>(existingKeys.coinMarketIds());
+        var lastUpdate = LocalDateTime.now(ZoneOffset.UTC);
+        var unique = new ArrayList<IndexedCryptocurrency>(cryptocurrencies.size());
+        for (var indexedCryptocurrency : cryptocurrencies) {
+            var cryptocurrency = indexedCryptocurrency.cryptocurrency();
+            var errors = new ArrayList<String>();
+            if (!names.add(cryptocurrency.getName().toLowerCase(Locale.ROOT)))
+                errors.add("Cryptocurrency name already exists: " + cryptocurrency.getName());
+            if (!symbols.add(cryptocurrency.getSymbol().toLowerCase(Locale.ROOT)))
+                errors.add("Cryptocurrency symbol already exists: " + cryptocurrency.getSymbol());
+            if (!coinMarketIds.add(cryptocurrency.getCoinMarketId()))
+                errors.add("Coin market ID already exists: " + cryptocurrency.getCoinMarketId());
+            if (!errors.isEmpty()) {
+                results[indexedCryptocurrency.index()] = failed(indexedCryptocurrency.index(), HttpStatus.CONFLICT, errors);
+                continue;
+            }
+            cryptocurrency.setLastUpdate(lastUpdate);
+            cryptocurrency.setPrice(Price.builder()
+                    .cryptocurrency(cryptocurrency)
+                    .lastUpdate(lastUpdate)
+                    .build());
+            unique.add(indexedCryptocurrency);
+        }
+
+        List<Cryptocurrency> inserted;
+        try {
+            inserted = cryptocurrencyBatchWriter.insert(unique.stream()
+                    .map(IndexedCryptocurrency::cryptocurrency)
+                    .toList());
+        } catch (DataAccessException e) {
+            var status = e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException ?
+                    HttpStatus.SERVICE_UNAVAILABLE :
+                    HttpStatus.INTERNAL_SERVER_ERROR;
+            log.warn("Batch insert of {} cryptocurrencies failed, reason: {}", unique.size(), e.getMessage());
+            unique.forEach(indexedCryptocurrency -> results[indexedCryptocurrency.index()] =
+                    failed(indexedCryptocurrency.index(), status,
+                            List.of("Batch insert failed: " + e.getMostSpecificCause().getMessage())));
+            return List.of();
+        }
+
+        var insertedSet = Collections.newSetFromMap(new IdentityHashMap<Cryptocurrency, Boolean>());
+        insertedSet.addAll(inserted);
+        var registered = new ArrayList<IndexedCryptocurrency>(inserted.size());
+        for (var indexedCryptocurrency : unique) {
+            var index = indexedCryptocurrency.index();
+            if (!insertedSet.contains(indexedCryptocurrency.cryptocurrency())) {
+                results[index] = failed(index, HttpStatus.CONFLICT,
+                        List.of("Cryptocurrency was registered concurrently: " + indexedCryptocurrency.cryptocurrency().getName()));
+                continue;
+            }
+            results[index] = new CryptocurrencyBatchResultDTO()
+                    .setIndex(index)
+                    .setStatus(HttpStatus.CREATED.value())
+                    .setCryptocurrencyDTO(mapper.mapEntityToCryptocurrencyDto(indexedCryptocurrency.cryptocurrency(),
+                            new CycleAvoidingMappingContext()));
+            registered.add(indexedCryptocurrency);
+        }
+        return registered;
+    }
+
+    private List<List<String>> partition(List<String> symbols) {
+        var chunks = new ArrayList<List<String>>(symbols.size() / symbolsChunkSize + 1);
+        for (var from = 0; from < symbols.size(); from += symbolsChunkSize)
+            chunks.add(symbols.subList(from, Math.min(from + symbolsChunkSize, symbols.size())));
+        return chunks;
+    }
+
+    private static CryptocurrencyBatchResultDTO failed(int index, HttpStatus status, List<String> errors) {
+        return new CryptocurrencyBatchResultDTO()
+                .setIndex(index)
+                .setStatus(status.value())
+                .setErrors(errors);
+    }
+
+    private record IndexedCryptocurrency(int index, Cryptocurrency cryptocurrency) {
+    }
+
+    /**
+     * Map entries found for unknown symbols and the failure message of symbols whose lookup failed.
+     */
+    private static final class SymbolLookup {
+        private final List<CryptocurrencyMapDTO> mapEntries = new ArrayList<>();
+        private final Map<String, String> failures = new HashMap<>();
+
+        private void fail(List<String> symbols, RuntimeException e) {
+            log.warn("Coin market ID lookup of {} symbols failed, reason: {}", symbols.size(), e.getMessage());
+            symbols.forEach(symbol -> failures.put(symbol, e.getMessage()));
+        }
+    }
+}
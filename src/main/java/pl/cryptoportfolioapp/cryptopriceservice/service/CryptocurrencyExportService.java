@@ -0,0 +1,63 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyExportReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Exports all cryptocurrencies with prices as newline delimited JSON. Each row streamed by
+ * {@link CryptocurrencyExportReader} is mapped and written to the output stream right away,
+ * nothing is collected, so an export of any size uses the same memory.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class CryptocurrencyExportService {
+
+    private static final CryptocurrencyMapper mapper = CryptocurrencyMapper.INSTANCE;
+
+    @Autowired
+    private CryptocurrencyExportReader cryptocurrencyExportReader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes one JSON object per line, the stream is flushed once at the end but left open.
+     */
+    public void exportNdjson(OutputStream outputStream) throws IOException {
+        var writer = objectMapper.writerFor(CryptocurrencyDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        var count = new long[1];
+        try (var generator = objectMapper.getFactory().createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.setRootValueSeparator(null);
+            cryptocurrencyExportReader.forEachWithPrice(cryptocurrency -> {
+                try {
+                    writer.writeValue(generator, mapper.mapEntityToCryptocurrencyDto(cryptocurrency,
+                            new CycleAvoidingMappingContext()));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Export stopped after {} cryptocurrencies, reason: {}", count[0], e.getMessage());
+            throw e.getCause();
+        }
+        log.info("Exported {} cryptocurrencies", count[0]);
+    }
+}
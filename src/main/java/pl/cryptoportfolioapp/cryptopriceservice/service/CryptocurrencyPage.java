@@ -0,0 +1,13 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencyCursor;
+
+import java.util.List;
+
+/**
+ * @param next position after the last cryptocurrency, null when there is no next page
+ * @author Karol Kuta-Orlowicz
+ */
+public record CryptocurrencyPage(List<Cryptocurrency> cryptocurrencies, CryptocurrencyCursor next) {
+}
@@ -0,0 +1,69 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.InvalidPageRequestException;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencyCursor;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySortField;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
+
+/**
+ * Keyset pagination of cryptocurrencies. A page starts after {@code after}, a plain id usable with the id order,
+ * or after an opaque cursor of the previous page which also carries its order. One row more than the limit is
+ * read to know whether a next page exists.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class CryptocurrencyPageService {
+
+    @Autowired
+    private CryptocurrencyRepository cryptocurrencyRepository;
+
+    @Value("${cryptocurrency.page.max.limit:500}")
+    private int maxLimit = 500;
+
+    /**
+     * @param sort   order of the first page, null for the id order, must match the cursor order when both are given
+     * @param after  id the page starts after, only with the id order
+     * @param cursor next cursor of the previous page
+     */
+    public CryptocurrencyPage getPage(int limit, CryptocurrencySort sort, Long after, String cursor) {
+        if (limit < 1)
+            throw new InvalidPageRequestException(String.format("Limit must be positive, was: %d", limit));
+        if (after != null && cursor != null)
+            throw new InvalidPageRequestException("Parameters after and cursor cannot be used together");
+
+        var position = cursor != null ? decode(cursor) : null;
+        if (position != null && sort != null && !sort.equals(position.sort()))
+            throw new InvalidPageRequestException(String.format("Sort %s does not match the cursor sort %s",
+                    sort, position.sort()));
+        var pageSort = position != null ? position.sort() : sort != null ? sort : CryptocurrencySort.BY_ID;
+        if (after != null) {
+            if (pageSort.field() != CryptocurrencySortField.ID)
+                throw new InvalidPageRequestException(String.format("Parameter after requires sort by id, was: %s",
+                        pageSort));
+            position = new CryptocurrencyCursor(pageSort, null, after);
+        }
+
+        var pageLimit = Math.min(limit, maxLimit);
+        log.debug(String.format("Finding %d cryptocurrencies sorted by %s", pageLimit, pageSort));
+        var cryptocurrencies = cryptocurrencyRepository.findPage(pageSort, position, pageLimit + 1);
+        if (cryptocurrencies.size() <= pageLimit)
+            return new CryptocurrencyPage(cryptocurrencies, null);
+        var page = cryptocurrencies.subList(0, pageLimit);
+        return new CryptocurrencyPage(page, CryptocurrencyCursor.after(pageSort, page.get(pageLimit - 1)));
+    }
+
+    private static CryptocurrencyCursor decode(String cursor) {
+        try {
+            return CryptocurrencyCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException(String.format("Invalid cursor: %s", cursor));
+        }
+    }
+}
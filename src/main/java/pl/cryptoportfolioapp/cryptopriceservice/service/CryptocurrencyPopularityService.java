@@ -0,0 +1,40 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts reads of single cryptocurrencies over the current and the previous popularity window,
+ * so a coin stays popular for at least one full window after its requests stop.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+public class CryptocurrencyPopularityService {
+
+    private volatile Map<Long, LongAdder> currentWindow = new ConcurrentHashMap<>();
+    private volatile Map<Long, LongAdder> previousWindow = new ConcurrentHashMap<>();
+
+    public void recordRequest(Long cryptocurrencyId) {
+        currentWindow.computeIfAbsent(cryptocurrencyId, id -> new LongAdder()).increment();
+    }
+
+    public long getRequestCount(Long cryptocurrencyId) {
+        return count(currentWindow, cryptocurrencyId) + count(previousWindow, cryptocurrencyId);
+    }
+
+    @Scheduled(fixedDelayString = "${price.refresh.adaptive.popularity-window:PT15M}")
+    public void rotateWindow() {
+        previousWindow = currentWindow;
+        currentWindow = new ConcurrentHashMap<>();
+    }
+
+    private static long count(Map<Long, LongAdder> window, Long cryptocurrencyId) {
+        var requests = window.get(cryptocurrencyId);
+        return requests != null ? requests.sum() : 0;
+    }
+}
@@ -3,7 +3,6 @@ package pl.cryptoportfolioapp.cryptopriceservice.service;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.MapDataDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.exception.CryptocurrencyNotFoundException;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
@@ -12,6 +11,7 @@ import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyReposit
 
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +22,10 @@ public class CryptocurrencyService {
 
     private final CryptocurrencyRepository cryptocurrencyRepository;
     private final MarketApiClientService marketApiClientService;
+    private final CryptocurrencySnapshotService cryptocurrencySnapshotService;
+    private final CoinMarketIdDictionary coinMarketIdDictionary;
+    private final PriceChangeDetector priceChangeDetector;
+    private final PriceCheckTracker priceCheckTracker;
 
     public Cryptocurrency addCryptocurrency(Cryptocurrency cryptocurrency) {
         if (cryptocurrency.getCoinMarketId() == null)
@@ -37,7 +41,9 @@ public class CryptocurrencyService {
         log.info(String.format("Adding new cryptocurrency name: %s, coinMarketCapId: %s",
                 cryptocurrency.getName(),
                 cryptocurrency.getCoinMarketId()));
-        return cryptocurrencyRepository.save(cryptocurrency);
+        var savedCryptocurrency = cryptocurrencyRepository.save(cryptocurrency);
+        cryptocurrencySnapshotService.publish();
+        return savedCryptocurrency;
     }
 
     public List<Cryptocurrency> getCryptocurrencies() {
@@ -45,6 +51,11 @@ public class CryptocurrencyService {
         return cryptocurrencyRepository.findAll();
     }
 
+    public List<Cryptocurrency> getByIds(Collection<Long> ids) {
+        log.info(String.format("Finding %d cryptocurrencies by id", ids.size()));
+        return cryptocurrencyRepository.findAllById(ids);
+    }
+
     public Cryptocurrency getById(Long id) {
         log.info(String.format("Finding cryptocurrency by id: %d", id));
         return cryptocurrencyRepository.findById(id)
@@ -65,12 +76,20 @@ public class CryptocurrencyService {
                 cryptocurrency.getName(),
                 cryptocurrency.getSymbol(),
                 cryptocurrency.getCoinMarketId()));
-        return cryptocurrencyRepository.save(cryptocurrencyToUpdate);
+        var updatedCryptocurrency = cryptocurrencyRepository.save(cryptocurrencyToUpdate);
+        cryptocurrencySnapshotService.publish();
+        return updatedCryptocurrency;
     }
 
     public void deleteCryptocurrency(Long id) {
         log.info(String.format("Deleting cryptocurrency id: %d", id));
+        var priceId = cryptocurrencyRepository.findById(id)
+                .map(Cryptocurrency::getPrice)
+                .map(Price::getId);
         cryptocurrencyRepository.deleteById(id);
+        priceId.ifPresent(priceChangeDetector::forget);
+        priceCheckTracker.forget(id);
+        cryptocurrencySnapshotService.publish();
     }
 
     public List<Cryptocurrency> getByName(List<String> name) {
@@ -78,13 +97,18 @@ public class CryptocurrencyService {
         return cryptocurrencyRepository.findByName(name);
     }
 
+    public List<Cryptocurrency> getBySymbol(List<String> symbol) {
+        log.info(String.format("Finding cryptocurrencies by symbol: %s", symbol));
+        return cryptocurrencyRepository.findBySymbol(symbol);
+    }
+
     private Optional<Long> getCoinMarketId(Cryptocurrency cryptocurrency){
-        return marketApiClientService.getCryptoMarketIdBySymbol(cryptocurrency.getSymbol())
+        var coinMarketId = coinMarketIdDictionary.findCoinMarketId(cryptocurrency.getSymbol(), cryptocurrency.getName());
+        if (coinMarketId.isPresent())
+            return coinMarketId;
+        var mapEntries = marketApiClientService.getCryptoMarketIdBySymbol(cryptocurrency.getSymbol())
                 .map(MapDataDTO::getData)
-                .orElseThrow()
-                .stream()
-                .filter(cryptocurrencyMapDTO -> cryptocurrencyMapDTO.getSymbol().equalsIgnoreCase(cryptocurrency.getSymbol()))
-                .map(CryptocurrencyMapDTO::getCoinMarketId)
-                .findFirst();
+                .orElseThrow();
+        return CoinMarketIdIndex.of(mapEntries).find(cryptocurrency.getSymbol(), cryptocurrency.getName());
     }
 }
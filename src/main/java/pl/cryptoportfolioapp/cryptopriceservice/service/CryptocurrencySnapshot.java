@@ -0,0 +1,100 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable view of all cryptocurrencies with their latest prices, ordered by id, together with
+ * the serialized JSON of the full list and of each cryptocurrency. Last modification time of a payload
+ * is the latest {@code lastUpdate} of the cryptocurrency or its price.
+ * A new snapshot replaces the previous one as a whole, it is never modified after publishing.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public record CryptocurrencySnapshot(List<CryptocurrencyDTO> cryptocurrencies,
+                                     Map<Long, CryptocurrencyDTO> cryptocurrenciesById,
+                                     JsonPayload listPayload,
+                                     Map<Long, JsonPayload> payloadsById) {
+
+    public static final CryptocurrencySnapshot EMPTY = of(List.of(), new ObjectMapper());
+
+    public static CryptocurrencySnapshot of(List<CryptocurrencyDTO> cryptocurrencies, ObjectMapper objectMapper) {
+        var cryptocurrenciesById = new LinkedHashMap<Long, CryptocurrencyDTO>();
+        var payloadsById = new HashMap<Long, JsonPayload>();
+        var listLastModified = -1L;
+        try {
+            for (var cryptocurrencyDTO : cryptocurrencies) {
+                var payload = payloadOf(cryptocurrencyDTO, objectMapper);
+                listLastModified = Math.max(listLastModified, payload.lastModified());
+                cryptocurrenciesById.put(cryptocurrencyDTO.getId(), cryptocurrencyDTO);
+                payloadsById.put(cryptocurrencyDTO.getId(), payload);
+            }
+            return new CryptocurrencySnapshot(List.copyOf(cryptocurrencies),
+                    Map.copyOf(cryptocurrenciesById),
+                    JsonPayload.of(objectMapper.writeValueAsBytes(cryptocurrencies), listLastModified),
+                    Map.copyOf(payloadsById));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize cryptocurrency snapshot", e);
+        }
+    }
+
+    static JsonPayload payloadOf(CryptocurrencyDTO cryptocurrencyDTO, ObjectMapper objectMapper)
+            throws JsonProcessingException {
+        return JsonPayload.of(objectMapper.writeValueAsBytes(cryptocurrencyDTO), lastModified(cryptocurrencyDTO));
+    }
+
+    public CryptocurrencySnapshot withListLastModified(long lastModified) {
+        return new CryptocurrencySnapshot(cryptocurrencies, cryptocurrenciesById,
+                listPayload.withLastModified(lastModified), payloadsById);
+    }
+
+    public Optional<CryptocurrencyDTO> getById(Long id) {
+        return Optional.ofNullable(cryptocurrenciesById.get(id));
+    }
+
+    public Optional<JsonPayload> getPayloadById(Long id) {
+        return Optional.ofNullable(payloadsById.get(id));
+    }
+
+    public List<CryptocurrencyDTO> getByName(Collection<String> names) {
+        return filterIgnoreCase(names, CryptocurrencyDTO::getName);
+    }
+
+    public List<CryptocurrencyDTO> getBySymbol(Collection<String> symbols) {
+        return filterIgnoreCase(symbols, CryptocurrencyDTO::getSymbol);
+    }
+
+    private List<CryptocurrencyDTO> filterIgnoreCase(Collection<String> values, Function<CryptocurrencyDTO, String> field) {
+        Set<String> lowerCaseValues = values.stream()
+                .map(value -> value.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        return cryptocurrencies.stream()
+                .filter(cryptocurrencyDTO -> lowerCaseValues.contains(field.apply(cryptocurrencyDTO).toLowerCase(Locale.ROOT)))
+                .toList();
+    }
+
+    private static long lastModified(CryptocurrencyDTO cryptocurrencyDTO) {
+        var lastModified = toEpochMilli(cryptocurrencyDTO.getLastUpdate());
+        if (cryptocurrencyDTO.getPriceDTO() != null)
+            lastModified = Math.max(lastModified, toEpochMilli(cryptocurrencyDTO.getPriceDTO().getLastUpdate()));
+        return lastModified;
+    }
+
+    private static long toEpochMilli(LocalDateTime lastUpdate) {
+        return lastUpdate != null ? lastUpdate.toInstant(ZoneOffset.UTC).toEpochMilli() : -1L;
+    }
+}
@@ -0,0 +1,85 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the {@link CryptocurrencySnapshot} served by read endpoints. It is rebuilt from the database
+ * after a price refresh and after every change of cryptocurrencies and swapped atomically,
+ * so reads never touch the database nor see a half built list. JSON bodies are serialized
+ * with the application {@link ObjectMapper} once per publish instead of once per request.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class CryptocurrencySnapshotService {
+
+    @Autowired
+    private CryptocurrencyRepository cryptocurrencyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicReference<CryptocurrencySnapshot> snapshot = new AtomicReference<>(CryptocurrencySnapshot.EMPTY);
+
+    public CryptocurrencySnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Serializes a cryptocurrency the snapshot does not contain yet, the same way a published snapshot would.
+     */
+    public JsonPayload serialize(CryptocurrencyDTO cryptocurrencyDTO) {
+        try {
+            return CryptocurrencySnapshot.payloadOf(cryptocurrencyDTO, objectMapper);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize cryptocurrency " + cryptocurrencyDTO.getId(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        publish();
+    }
+
+    public synchronized CryptocurrencySnapshot publish() {
+        var cryptocurrencyDTOS = cryptocurrencyRepository.findAllWithPrice()
+                .stream()
+                .map(cryptocurrency -> CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrency,
+                        new CycleAvoidingMappingContext()))
+                .toList();
+        var newSnapshot = keepListLastModifiedMonotonic(snapshot.get(),
+                CryptocurrencySnapshot.of(cryptocurrencyDTOS, objectMapper));
+        snapshot.set(newSnapshot);
+        log.info("Published snapshot of {} cryptocurrencies", cryptocurrencyDTOS.size());
+        return newSnapshot;
+    }
+
+    /**
+     * Removing a cryptocurrency changes the list without a newer {@code lastUpdate},
+     * so the publish time is used to keep If-Modified-Since clients from missing it.
+     */
+    private static CryptocurrencySnapshot keepListLastModifiedMonotonic(CryptocurrencySnapshot previousSnapshot,
+                                                                        CryptocurrencySnapshot newSnapshot) {
+        var previousPayload = previousSnapshot.listPayload();
+        var newPayload = newSnapshot.listPayload();
+        if (newPayload.eTag().equals(previousPayload.eTag()))
+            return newSnapshot.withListLastModified(Math.max(newPayload.lastModified(), previousPayload.lastModified()));
+        if (newPayload.lastModified() <= previousPayload.lastModified())
+            return newSnapshot.withListLastModified(Instant.now().toEpochMilli());
+        return newSnapshot;
+    }
+}
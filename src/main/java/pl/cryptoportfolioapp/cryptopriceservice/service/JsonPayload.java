@@ -0,0 +1,36 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * UTF-8 JSON body serialized once per snapshot, with its gzip compressed copy, strong ETags
+ * of both representations and the last modification time in epoch millis, -1 when unknown.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public record JsonPayload(byte[] json, byte[] gzip, String eTag, String gzipETag, long lastModified) {
+
+    public static JsonPayload of(byte[] json, long lastModified) {
+        var digest = DigestUtils.md5DigestAsHex(json);
+        return new JsonPayload(json, compress(json), "\"" + digest + "\"", "\"" + digest + "-gzip\"", lastModified);
+    }
+
+    public JsonPayload withLastModified(long lastModified) {
+        return new JsonPayload(json, gzip, eTag, gzipETag, lastModified);
+    }
+
+    private static byte[] compress(byte[] json) {
+        var outputStream = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (var gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+}
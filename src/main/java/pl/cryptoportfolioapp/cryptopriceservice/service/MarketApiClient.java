@@ -1,5 +1,9 @@
 package pl.cryptoportfolioapp.cryptopriceservice.service;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 import java.net.URI;
 import java.util.Optional;
 
@@ -7,5 +11,22 @@ import java.util.Optional;
  * @author Karol Kuta-Orlowicz
  */
 public interface MarketApiClient {
-   <T> Optional<T> getRequest(URI uri, Class<T> map);
+
+   /**
+    * Non-blocking get request, nothing is sent until the returned {@link Mono} is subscribed.
+    */
+   <T> Mono<T> get(URI uri, Class<T> map);
+
+   /**
+    * Non-blocking get request exposing the raw response body chunks as they arrive, for streaming decoders.
+    * Subscriber is responsible for releasing every emitted buffer.
+    */
+   Flux<DataBuffer> getBody(URI uri);
+
+   /**
+    * Blocking adapter of {@link #get(URI, Class)}, holds the calling thread for the whole round trip.
+    */
+   default <T> Optional<T> getRequest(URI uri, Class<T> map) {
+      return get(uri, map).blockOptional();
+   }
 }
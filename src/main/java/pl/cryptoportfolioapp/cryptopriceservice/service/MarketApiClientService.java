@@ -6,12 +6,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.util.UriComponentsBuilder;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.MapDataDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuotesDataDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.service.impl.MarketApiClientImpl;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import javax.annotation.PostConstruct;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * @author Karol Kuta-Orlowicz
@@ -30,26 +42,124 @@ public class MarketApiClientService {
     @Value("${api.coin.market.cap.map.endpoint}")
     private String mapCryptocurrencyEndpoint;
 
+    @Value("${api.coin.market.cap.quote.chunk.size:100}")
+    private int quoteChunkSize = 100;
+
+    @Value("${api.coin.market.cap.quote.chunk.concurrency:4}")
+    private int quoteChunkConcurrency = 4;
+
+    @Value("${api.coin.market.cap.quote.chunk.retries:1}")
+    private int quoteChunkRetries = 1;
 
     public MarketApiClientService(WebClient webClient) {
         this.marketApiClient = new MarketApiClientImpl(webClient);
     }
 
+    @PostConstruct
+    void validateQuoteChunkSize() {
+        if (quoteChunkSize < 1)
+            throw new IllegalStateException(
+                    "api.coin.market.cap.quote.chunk.size must be at least 1, was " + quoteChunkSize);
+    }
+
     public Optional<QuotesDataDTO> getLatestPriceByIds(String ids) {
+        return fetchLatestPriceByIds(ids).blockOptional();
+    }
+
+    public Mono<QuotesDataDTO> fetchLatestPriceByIds(String ids) {
+        return marketApiClient.get(createQuotesLatestUri(ids), QuotesDataDTO.class);
+    }
+
+    /**
+     * Streams USD quotes of the given ids straight out of the response body, see {@link QuoteStreamDecoder}.
+     */
+    public Flux<QuoteRecord> fetchLatestQuoteRecordsByIds(String ids) {
+        return QuoteStreamDecoder.decode(marketApiClient.getBody(createQuotesLatestUri(ids)));
+    }
+
+    /**
+     * Splits ids into chunks of {@code api.coin.market.cap.quote.chunk.size} and streams them with at most
+     * {@code api.coin.market.cap.quote.chunk.concurrency} requests in flight. Connection failures of a chunk are
+     * retried, any other failed chunk is skipped. The call fails only when every chunk failed.
+     */
+    public Flux<QuoteRecord> fetchLatestQuoteRecordsByChunkedIds(Collection<Long> ids) {
+        if (ids.isEmpty())
+            return Flux.empty();
+        var chunks = partition(ids);
+        return Flux.defer(() -> {
+            var failures = new ConcurrentLinkedQueue<Throwable>();
+            return Flux.fromIterable(chunks)
+                    .flatMap(chunk -> fetchLatestQuoteRecordsByIds(chunk)
+                                    .retryWhen(Retry.max(quoteChunkRetries)
+                                            .filter(WebClientRequestException.class::isInstance))
+                                    .onErrorResume(throwable -> {
+                                        log.warn("Skipping quotes chunk ids:{}, reason: {}", chunk, throwable.getMessage());
+                                        failures.add(throwable);
+                                        return Flux.empty();
+                                    }),
+                            quoteChunkConcurrency)
+                    .concatWith(Flux.defer(() -> failures.size() == chunks.size() ?
+                            Flux.error(failures.peek()) :
+                            Flux.empty()));
+        });
+    }
+
+    public Optional<MapDataDTO> getCryptoMarketIdBySymbol(String symbol){
+        return fetchCryptoMarketIdBySymbol(symbol).blockOptional();
+    }
+
+    public Mono<MapDataDTO> fetchCryptoMarketIdBySymbol(String symbol) {
         var uri = UriComponentsBuilder.newInstance()
-                .path(this.quotesLatestEndpoint)
-                .queryParamIfPresent("id", Optional.of(ids))
+                .path(this.mapCryptocurrencyEndpoint)
+                .queryParamIfPresent("symbol", Optional.of(symbol))
                 .build()
                 .toUri();
-        return marketApiClient.getRequest(uri, QuotesDataDTO.class);
+        return marketApiClient.get(uri, MapDataDTO.class);
     }
 
-    public Optional<MapDataDTO> getCryptoMarketIdBySymbol(String symbol){
+    /**
+     * Looks up several symbols in one map request, the response holds every coin listed under any of them.
+     */
+    public Mono<MapDataDTO> fetchCryptoMarketIdsBySymbols(Collection<String> symbols) {
+        return fetchCryptoMarketIdBySymbol(String.join(",", symbols));
+    }
+
+    /**
+     * Fetches one page of the full cryptocurrency map ordered by id, {@code start} is the 1-based offset.
+     */
+    public Mono<MapDataDTO> fetchCryptocurrencyMapPage(int start, int limit) {
         var uri = UriComponentsBuilder.newInstance()
                 .path(this.mapCryptocurrencyEndpoint)
-                .queryParamIfPresent("symbol", Optional.of(symbol))
+                .queryParam("start", start)
+                .queryParam("limit", limit)
+                .queryParam("sort", "id")
+                .build()
+                .toUri();
+        return marketApiClient.get(uri, MapDataDTO.class);
+    }
+
+    private List<String> partition(Collection<Long> ids) {
+        var chunks = new ArrayList<String>(ids.size() / quoteChunkSize + 1);
+        var chunk = new StringJoiner(",");
+        var chunkLength = 0;
+        for (var id : ids) {
+            chunk.add(String.valueOf(id));
+            if (++chunkLength == quoteChunkSize) {
+                chunks.add(chunk.toString());
+                chunk = new StringJoiner(",");
+                chunkLength = 0;
+            }
+        }
+        if (chunkLength > 0)
+            chunks.add(chunk.toString());
+        return chunks;
+    }
+
+    private URI createQuotesLatestUri(String ids) {
+        return UriComponentsBuilder.newInstance()
+                .path(this.quotesLatestEndpoint)
+                .queryParamIfPresent("id", Optional.of(ids))
                 .build()
                 .toUri();
-        return marketApiClient.getRequest(uri, MapDataDTO.class);
     }
 }
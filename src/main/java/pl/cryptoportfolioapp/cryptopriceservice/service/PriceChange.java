@@ -0,0 +1,12 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
+
+/**
+ * Cryptocurrency whose price changed in a refresh, with the price it had before, null for the first quote.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public record PriceChange(CryptocurrencyDTO cryptocurrency, PriceDTO previousPrice) {
+}
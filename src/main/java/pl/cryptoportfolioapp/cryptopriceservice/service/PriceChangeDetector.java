@@ -0,0 +1,189 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells which refreshed quotes differ from the last known values of their price row, so unchanged rows are
+ * neither written nor published. Last known values are {@link FixedPoint} longs kept per price id, seeded from
+ * the loaded price on the first sight of a row and replaced only once a change has been persisted. Quotes and
+ * prices out of the fixed-point range always count as changed.
+ * They are dropped when the cryptocurrency is deleted or missing from a full refresh, a refresh of selected
+ * cryptocurrencies keeps the values of the others. The skip ratio gauge follows full refreshes only.
+ * With {@code price.change.detection.epsilon} above zero a value counts as changed when it moved by more
+ * than that fraction of its magnitude.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class PriceChangeDetector {
+
+    static final String QUOTES_METRIC = "price.change.detection.quotes";
+    static final String SKIP_RATIO_METRIC = "price.change.detection.skip.ratio";
+
+    private final Map<Long, long[]> lastKnownValues = new ConcurrentHashMap<>();
+    private volatile double skipRatio;
+
+    @Value("${price.change.detection.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${price.change.detection.epsilon:0}")
+    private double epsilon;
+
+    public PriceChangeDetector() {
+        Metrics.gauge(SKIP_RATIO_METRIC, this, PriceChangeDetector::getSkipRatio);
+    }
+
+    /**
+     * @return cryptocurrencies with a quote that changed their price, all of them when detection is disabled
+     */
+    public List<CryptocurrencyDTO> filterChanged(List<CryptocurrencyDTO> cryptocurrencyDTOS,
+                                                 Map<Long, QuoteRecord> quotesByCoinMarketId) {
+        return filterChanged(cryptocurrencyDTOS, quotesByCoinMarketId, false);
+    }
+
+    /**
+     * Like {@link #filterChanged(List, Map)} for a refresh of every tracked cryptocurrency, so values of price rows
+     * not among them are dropped.
+     */
+    public List<CryptocurrencyDTO> filterChangedOfAll(List<CryptocurrencyDTO> cryptocurrencyDTOS,
+                                                      Map<Long, QuoteRecord> quotesByCoinMarketId) {
+        return filterChanged(cryptocurrencyDTOS, quotesByCoinMarketId, true);
+    }
+
+    /**
+     * Drops the last known values of a deleted price row.
+     */
+    public void forget(Long priceId) {
+        lastKnownValues.remove(priceId);
+    }
+
+    private List<CryptocurrencyDTO> filterChanged(List<CryptocurrencyDTO> cryptocurrencyDTOS,
+                                                  Map<Long, QuoteRecord> quotesByCoinMarketId, boolean fullRefresh) {
+        if (!enabled)
+            return cryptocurrencyDTOS;
+        var changed = new ArrayList<CryptocurrencyDTO>(cryptocurrencyDTOS.size());
+        var quoted = 0;
+        for (var cryptocurrencyDTO : cryptocurrencyDTOS) {
+            var quoteRecord = quotesByCoinMarketId.get(cryptocurrencyDTO.getCoinMarketId());
+            if (quoteRecord == null)
+                continue;
+            quoted++;
+            if (isChanged(cryptocurrencyDTO.getPriceDTO(), quoteRecord))
+                changed.add(cryptocurrencyDTO);
+        }
+        recordSkipped(quoted, quoted - changed.size());
+        if (fullRefresh) {
+            lastKnownValues.keySet().retainAll(findPriceIds(cryptocurrencyDTOS));
+            skipRatio = quoted == 0 ? 0 : (double) (quoted - changed.size()) / quoted;
+        }
+        return changed;
+    }
+
+    /**
+     * Makes persisted quotes the values next refreshes are compared with.
+     */
+    public void remember(List<CryptocurrencyDTO> cryptocurrencyDTOS, Map<Long, QuoteRecord> quotesByCoinMarketId) {
+        if (!enabled)
+            return;
+        for (var cryptocurrencyDTO : cryptocurrencyDTOS) {
+            var priceDTO = cryptocurrencyDTO.getPriceDTO();
+            var quoteRecord = quotesByCoinMarketId.get(cryptocurrencyDTO.getCoinMarketId());
+            if (priceDTO == null || priceDTO.getId() == null || quoteRecord == null)
+                continue;
+            if (quoteRecord.overflowQuote() != null)
+                lastKnownValues.remove(priceDTO.getId());
+            else
+                lastKnownValues.put(priceDTO.getId(), toValues(quoteRecord));
+        }
+    }
+
+    double getSkipRatio() {
+        return skipRatio;
+    }
+
+    private boolean isChanged(PriceDTO priceDTO, QuoteRecord quoteRecord) {
+        if (priceDTO == null || priceDTO.getId() == null || quoteRecord.overflowQuote() != null)
+            return true;
+        var previousValues = lastKnownValues.computeIfAbsent(priceDTO.getId(), priceId -> toValues(priceDTO));
+        if (previousValues == null)
+            return true;
+        var values = toValues(quoteRecord);
+        for (var field = 0; field < values.length; field++) {
+            if (!isEqual(previousValues[field], values[field]))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isEqual(long previousValue, long value) {
+        if (previousValue == value)
+            return true;
+        if (previousValue == FixedPoint.NULL || value == FixedPoint.NULL || epsilon <= 0)
+            return false;
+        double previous = previousValue;
+        double current = value;
+        return Math.abs(current - previous) <= epsilon * Math.max(Math.abs(previous), Math.abs(current));
+    }
+
+    private void recordSkipped(int quoted, int skipped) {
+        Metrics.counter(QUOTES_METRIC, "outcome", "changed").increment(quoted - skipped);
+        Metrics.counter(QUOTES_METRIC, "outcome", "skipped").increment(skipped);
+        log.info("Skipping {} of {} unchanged quotes", skipped, quoted);
+    }
+
+    private static Set<Long> findPriceIds(List<CryptocurrencyDTO> cryptocurrencyDTOS) {
+        var priceIds = new HashSet<Long>((int) (cryptocurrencyDTOS.size() / 0.75f) + 1);
+        for (var cryptocurrencyDTO : cryptocurrencyDTOS) {
+            var priceDTO = cryptocurrencyDTO.getPriceDTO();
+            if (priceDTO != null && priceDTO.getId() != null)
+                priceIds.add(priceDTO.getId());
+        }
+        return priceIds;
+    }
+
+    private static long[] toValues(QuoteRecord quoteRecord) {
+        return new long[]{
+                quoteRecord.priceCurrent(),
+                quoteRecord.percentChange1h(),
+                quoteRecord.percentChange24h(),
+                quoteRecord.percentChange7d(),
+                quoteRecord.percentChange30d(),
+                quoteRecord.percentChange60d(),
+                quoteRecord.percentChange90d()
+        };
+    }
+
+    /**
+     * @return null when a loaded value is out of the fixed-point range
+     */
+    private static long[] toValues(PriceDTO priceDTO) {
+        try {
+            return new long[]{
+                    FixedPoint.valueOf(priceDTO.getPriceCurrent()),
+                    FixedPoint.valueOf(priceDTO.getPercentChange1h()),
+                    FixedPoint.valueOf(priceDTO.getPercentChange24h()),
+                    FixedPoint.valueOf(priceDTO.getPercentChange7d()),
+                    FixedPoint.valueOf(priceDTO.getPercentChange30d()),
+                    FixedPoint.valueOf(priceDTO.getPercentChange60d()),
+                    FixedPoint.valueOf(priceDTO.getPercentChange90d())
+            };
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
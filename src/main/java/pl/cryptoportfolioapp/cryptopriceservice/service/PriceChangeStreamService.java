@@ -0,0 +1,43 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+
+/**
+ * Fans price changes of every refresh out to stream subscribers from one multicast sink.
+ * Each subscriber gets its own bounded buffer dropping the oldest changes, so a slow client
+ * neither blocks the refresh nor the other subscribers.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class PriceChangeStreamService {
+
+    private final Sinks.Many<PriceChange> sink = Sinks.many().multicast().directBestEffort();
+
+    @Value("${price.stream.subscriber.buffer.size:256}")
+    private int subscriberBufferSize = 256;
+
+    public void publish(Collection<PriceChange> priceChanges) {
+        if (priceChanges.isEmpty() || sink.currentSubscriberCount() == 0)
+            return;
+        priceChanges.forEach(priceChange -> sink.emitNext(priceChange,
+                (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED));
+        log.info("Streamed {} price changes to {} subscribers", priceChanges.size(), sink.currentSubscriberCount());
+    }
+
+    public Flux<PriceChange> stream() {
+        return sink.asFlux()
+                .onBackpressureBuffer(subscriberBufferSize,
+                        priceChange -> log.debug("Dropped price change of cryptocurrency id: {} for slow subscriber",
+                                priceChange.cryptocurrency().getId()),
+                        BufferOverflowStrategy.DROP_OLDEST);
+    }
+}
@@ -0,0 +1,35 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when the price of each cryptocurrency was last confirmed by a successful refresh. An unchanged
+ * quote is not written, so the price {@code lastUpdate} stays where it was, while the check time still moves on.
+ * The check time of a deleted cryptocurrency is dropped.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+public class PriceCheckTracker {
+
+    private final Map<Long, Instant> checkedAtById = new ConcurrentHashMap<>();
+
+    public void markChecked(Collection<Long> cryptocurrencyIds, Instant checkedAt) {
+        for (var cryptocurrencyId : cryptocurrencyIds)
+            checkedAtById.merge(cryptocurrencyId, checkedAt, (previous, current) -> current.isAfter(previous) ? current : previous);
+    }
+
+    public void forget(Long cryptocurrencyId) {
+        checkedAtById.remove(cryptocurrencyId);
+    }
+
+    public Optional<Instant> getCheckedAt(Long cryptocurrencyId) {
+        return Optional.ofNullable(checkedAtById.get(cryptocurrencyId));
+    }
+}
@@ -0,0 +1,65 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Binary price delta of one cryptocurrency, big-endian:
+ * {@code long coinMarketId, byte fieldMask, double value} for every field set in the mask.
+ * Mask bits in order: priceCurrent, percentChange1h, 24h, 7d, 30d, 60d, 90d. A field cleared upstream is sent as NaN.
+ * Frames are concatenated deltas, values are doubles so they are meant for display, not for accounting.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public final class PriceDeltaEncoder {
+
+    private static final List<Function<PriceDTO, BigDecimal>> FIELDS = List.of(
+            PriceDTO::getPriceCurrent,
+            PriceDTO::getPercentChange1h,
+            PriceDTO::getPercentChange24h,
+            PriceDTO::getPercentChange7d,
+            PriceDTO::getPercentChange30d,
+            PriceDTO::getPercentChange60d,
+            PriceDTO::getPercentChange90d);
+
+    private PriceDeltaEncoder() {
+    }
+
+    /**
+     * @return encoded delta, empty when no field changed
+     */
+    public static byte[] encode(Long coinMarketId, PriceDTO previousPrice, PriceDTO price) {
+        var mask = 0;
+        var changedFields = 0;
+        for (var field = 0; field < FIELDS.size(); field++) {
+            var value = price != null ? FIELDS.get(field).apply(price) : null;
+            var previousValue = previousPrice != null ? FIELDS.get(field).apply(previousPrice) : null;
+            var changed = previousPrice == null ? value != null : !isEqual(previousValue, value);
+            if (changed) {
+                mask |= 1 << field;
+                changedFields++;
+            }
+        }
+        if (mask == 0)
+            return new byte[0];
+        var buffer = ByteBuffer.allocate(Long.BYTES + 1 + changedFields * Double.BYTES)
+                .putLong(coinMarketId)
+                .put((byte) mask);
+        for (var field = 0; field < FIELDS.size(); field++) {
+            if ((mask & 1 << field) != 0) {
+                var value = FIELDS.get(field).apply(price);
+                buffer.putDouble(value != null ? value.doubleValue() : Double.NaN);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static boolean isEqual(BigDecimal previousValue, BigDecimal value) {
+        return previousValue == null || value == null ? Objects.equals(previousValue, value) : previousValue.compareTo(value) == 0;
+    }
+}
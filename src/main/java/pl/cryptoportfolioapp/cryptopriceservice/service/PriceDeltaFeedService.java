@@ -0,0 +1,122 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes binary price deltas to WebSocket sessions subscribed to the changed cryptocurrencies.
+ * Sessions are indexed by coinMarketId, so a refresh only visits clients interested in a changed coin.
+ * Every session gets one frame per refresh with its deltas, see {@link PriceDeltaEncoder}.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class PriceDeltaFeedService {
+
+    @Autowired
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    private final Map<Long, Set<WebSocketSession>> sessionsByCoinMarketId = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> coinMarketIdsBySessionId = new ConcurrentHashMap<>();
+
+    /**
+     * Subscribes the session to the given symbols and sends it the current prices of newly subscribed ones.
+     * The subscribed ids of a session are also its lock: a concurrent {@link #remove(WebSocketSession)} either
+     * unregisters them first and the subscription is dropped, or waits and unindexes what was added. A session
+     * closed before it got registered is removed again, so no entries outlive it.
+     */
+    public void subscribe(WebSocketSession session, Collection<String> symbols) {
+        var subscribedIds = coinMarketIdsBySessionId.computeIfAbsent(session.getId(), id -> ConcurrentHashMap.newKeySet());
+        var frame = new ByteArrayOutputStream();
+        synchronized (subscribedIds) {
+            if (coinMarketIdsBySessionId.get(session.getId()) != subscribedIds)
+                return;
+            for (var cryptocurrencyDTO : cryptocurrencySnapshotService.getSnapshot().getBySymbol(symbols)) {
+                var coinMarketId = cryptocurrencyDTO.getCoinMarketId();
+                if (!subscribedIds.add(coinMarketId))
+                    continue;
+                sessionsByCoinMarketId.compute(coinMarketId, (id, sessions) -> {
+                    var coinSessions = sessions != null ? sessions : ConcurrentHashMap.<WebSocketSession>newKeySet();
+                    coinSessions.add(session);
+                    return coinSessions;
+                });
+                frame.writeBytes(PriceDeltaEncoder.encode(coinMarketId, null, cryptocurrencyDTO.getPriceDTO()));
+            }
+        }
+        if (!session.isOpen()) {
+            remove(session);
+            return;
+        }
+        send(session, frame.toByteArray());
+    }
+
+    public void unsubscribe(WebSocketSession session, Collection<String> symbols) {
+        var subscribedIds = coinMarketIdsBySessionId.get(session.getId());
+        if (subscribedIds == null)
+            return;
+        synchronized (subscribedIds) {
+            for (var cryptocurrencyDTO : cryptocurrencySnapshotService.getSnapshot().getBySymbol(symbols)) {
+                if (subscribedIds.remove(cryptocurrencyDTO.getCoinMarketId()))
+                    removeFromIndex(cryptocurrencyDTO.getCoinMarketId(), session);
+            }
+        }
+    }
+
+    public void remove(WebSocketSession session) {
+        var subscribedIds = coinMarketIdsBySessionId.remove(session.getId());
+        if (subscribedIds == null)
+            return;
+        synchronized (subscribedIds) {
+            subscribedIds.forEach(coinMarketId -> removeFromIndex(coinMarketId, session));
+        }
+    }
+
+    public void publish(Collection<PriceChange> priceChanges) {
+        if (sessionsByCoinMarketId.isEmpty())
+            return;
+        var frames = new HashMap<WebSocketSession, ByteArrayOutputStream>();
+        for (var priceChange : priceChanges) {
+            var coinMarketId = priceChange.cryptocurrency().getCoinMarketId();
+            var sessions = sessionsByCoinMarketId.get(coinMarketId);
+            if (sessions == null)
+                continue;
+            var delta = PriceDeltaEncoder.encode(coinMarketId, priceChange.previousPrice(),
+                    priceChange.cryptocurrency().getPriceDTO());
+            if (delta.length == 0)
+                continue;
+            sessions.forEach(session -> frames.computeIfAbsent(session, s -> new ByteArrayOutputStream()).writeBytes(delta));
+        }
+        frames.forEach((session, frame) -> send(session, frame.toByteArray()));
+        log.info("Sent price deltas to {} WebSocket sessions", frames.size());
+    }
+
+    private void removeFromIndex(Long coinMarketId, WebSocketSession session) {
+        sessionsByCoinMarketId.computeIfPresent(coinMarketId, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    private void send(WebSocketSession session, byte[] frame) {
+        if (frame.length == 0 || !session.isOpen())
+            return;
+        try {
+            session.sendMessage(new BinaryMessage(frame));
+        } catch (IOException | IllegalStateException e) {
+            log.warn(String.format("Unable to send price deltas to session: %s, message: %s", session.getId(), e.getMessage()));
+            remove(session);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.RefreshLockRepository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Keeps price refreshes from overlapping. Within the instance a full refresh is single-flight, callers arriving
+ * while one runs wait for it and get its result, and every refresh, full or partial, runs exclusively.
+ * With {@code price.refresh.lock.enabled} the full refresh additionally takes a lease in {@code refresh_lock},
+ * so only one instance in the cluster fetches per cycle. The lease is kept until its TTL runs out, instances
+ * running the same cycle slightly later skip instead of fetching again, and it is released only on failure.
+ * A skipping instance returns right away and polls the lease in the background until the holder marks the
+ * refresh completed, or the wait times out, before it reloads what the holder persisted. Neither the refresh lock
+ * nor the calling scheduler thread is held while it waits. Adaptive refreshes use a lease of their own, which
+ * its holder renews on every tick, so their credits budget is spent by a single instance of the cluster.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class PriceRefreshGuard {
+
+    static final String LEASE_NAME = "price-refresh";
+    static final String ADAPTIVE_LEASE_NAME = "price-refresh-adaptive";
+    static final String RUNS_METRIC = "price.refresh.guard.runs";
+
+    @Autowired
+    private RefreshLockRepository refreshLockRepository;
+
+    @Value("${price.refresh.lock.enabled:false}")
+    private boolean leaseEnabled;
+
+    @Value("${price.refresh.lock.ttl:PT9M}")
+    private Duration leaseTtl = Duration.ofMinutes(9);
+
+    @Value("${price.refresh.lock.poll.interval:PT1S}")
+    private Duration leasePollInterval = Duration.ofSeconds(1);
+
+    @Value("${price.refresh.lock.wait.timeout:PT2M}")
+    private Duration leaseWaitTimeout = Duration.ofMinutes(2);
+
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicReference<CompletableFuture<List<Price>>> fullRefreshInFlight = new AtomicReference<>();
+    private final AtomicBoolean awaitingLeaseHolder = new AtomicBoolean();
+
+    /**
+     * Runs the full refresh unless one is already running, then waits for that one instead.
+     *
+     * @param whenLeaseHeld called in the background instead of the refresh when another instance holds the lease,
+     *                      after that instance completed its refresh
+     * @return refreshed prices, empty when the refresh was skipped
+     */
+    public List<Price> runFullRefresh(Supplier<List<Price>> refresh, Runnable whenLeaseHeld) {
+        var flight = new CompletableFuture<List<Price>>();
+        var runningFlight = fullRefreshInFlight.compareAndExchange(null, flight);
+        if (runningFlight != null) {
+            Metrics.counter(RUNS_METRIC, "outcome", "joined").increment();
+            log.info("Price refresh already running, waiting for its result");
+            return join(runningFlight);
+        }
+        try {
+            var prices = runExclusively(() -> leaseEnabled ? runUnderLease(refresh, whenLeaseHeld) : refresh.get());
+            flight.complete(prices);
+            return prices;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            fullRefreshInFlight.set(null);
+        }
+    }
+
+    /**
+     * Runs a refresh of selected cryptocurrencies once no other refresh of this instance is running.
+     */
+    public List<Price> runPartialRefresh(Supplier<List<Price>> refresh) {
+        return runExclusively(refresh);
+    }
+
+    /**
+     * @param ttl how long the lease is kept without renewal, after which another instance takes it over
+     * @return true when this instance may run adaptive refreshes, always without {@code price.refresh.lock.enabled}
+     */
+    public boolean holdAdaptiveLease(Duration ttl) {
+        return !leaseEnabled || refreshLockRepository.tryAcquire(ADAPTIVE_LEASE_NAME, owner, ttl);
+    }
+
+    private List<Price> runExclusively(Supplier<List<Price>> refresh) {
+        refreshLock.lock();
+        try {
+            Metrics.counter(RUNS_METRIC, "outcome", "ran").increment();
+            return refresh.get();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void runLocked(Runnable action) {
+        refreshLock.lock();
+        try {
+            action.run();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private List<Price> runUnderLease(Supplier<List<Price>> refresh, Runnable whenLeaseHeld) {
+        if (!refreshLockRepository.tryAcquire(LEASE_NAME, owner, leaseTtl)) {
+            Metrics.counter(RUNS_METRIC, "outcome", "skipped").increment();
+            log.info("Skipping price refresh, lease {} is held by another instance", LEASE_NAME);
+            awaitLeaseHolder(whenLeaseHeld);
+            return Collections.emptyList();
+        }
+        try {
+            var prices = refresh.get();
+            refreshLockRepository.complete(LEASE_NAME, owner);
+            return prices;
+        } catch (RuntimeException e) {
+            refreshLockRepository.release(LEASE_NAME, owner);
+            throw e;
+        }
+    }
+
+    /**
+     * Polls the lease on a bounded elastic worker and then runs {@code whenLeaseHeld} under the refresh lock.
+     * A wait already in progress is not started again.
+     */
+    private void awaitLeaseHolder(Runnable whenLeaseHeld) {
+        if (!awaitingLeaseHolder.compareAndSet(false, true))
+            return;
+        Mono.fromCallable(() -> refreshLockRepository.isRunning(LEASE_NAME))
+                .filter(running -> !running)
+                .repeatWhenEmpty(polls -> polls.delayElements(leasePollInterval, Schedulers.boundedElastic()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(leaseWaitTimeout, Mono.fromRunnable(() ->
+                        log.warn("Price refresh of lease {} did not complete within {}, reloading anyway",
+                                LEASE_NAME, leaseWaitTimeout)))
+                .publishOn(Schedulers.boundedElastic())
+                .then(Mono.fromRunnable(() -> runLocked(whenLeaseHeld)))
+                .doFinally(signalType -> awaitingLeaseHolder.set(false))
+                .subscribe(null, e -> log.warn("Reloading prices refreshed under lease {} failed, reason: {}",
+                        LEASE_NAME, e.getMessage()));
+    }
+
+    private static List<Price> join(CompletableFuture<List<Price>> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+}
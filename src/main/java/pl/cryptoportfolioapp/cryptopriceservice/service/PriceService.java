@@ -3,6 +3,7 @@ package pl.cryptoportfolioapp.cryptopriceservice.service;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import pl.cryptoportfolioapp.cryptopriceservice.exception.PriceNotFoundException;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
 import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceRepository;
@@ -10,6 +11,7 @@ import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceRepository;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author Karol Kuta-Orlowicz
@@ -21,15 +23,20 @@ public class PriceService {
 
     private PriceRepository priceRepository;
 
+    @Transactional
     public List<Price> updatePrices(List<Price> prices) {
-        var isPriceNotExist = prices.stream()
-                .anyMatch(price -> priceRepository.findById(price.getId()).isEmpty());
-        if (isPriceNotExist)
+        if (prices.isEmpty())
+            return prices;
+        var ids = prices.stream()
+                .map(Price::getId)
+                .collect(Collectors.toSet());
+        if (ids.contains(null) || priceRepository.countByIdIn(ids) != ids.size())
             throw new PriceNotFoundException("Unable to find price entity for a new price");
         var pricesToUpdate = prices.stream()
                 .peek(price -> price.setLastUpdate(LocalDateTime.now(ZoneOffset.UTC)))
                 .peek(price -> log.info("Updating price id:{}, new price: {}", price.getId(), price.getPriceCurrent()))
                 .toList();
-        return priceRepository.saveAll(pricesToUpdate);
+        priceRepository.updateAll(pricesToUpdate);
+        return pricesToUpdate;
     }
 }
@@ -0,0 +1,124 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code price_tick} range partitioned by day. Partitions for the upcoming days are created ahead of time
+ * and whole partitions older than the retention are dropped, so history is never removed row by row.
+ * Partitions are maintained once on startup, before scheduled refreshes append the first ticks, and then hourly,
+ * both unless {@code price.tick.partition.enabled} is false.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class PriceTickPartitionService implements SmartInitializingSingleton {
+
+    private static final String TABLE_NAME = "price_tick";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${price.tick.retention.days:30}")
+    private int retentionDays;
+
+    @Value("${price.tick.partition.days.ahead:3}")
+    private int daysAhead;
+
+    @Value("${price.tick.partition.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * Called when every singleton exists, so the schema is created, and before scheduled tasks are started.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        scheduledMaintainPartitions();
+    }
+
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void scheduledMaintainPartitions() {
+        if (!enabled)
+            return;
+        try {
+            maintainPartitions(LocalDate.now(ZoneOffset.UTC));
+        } catch (RuntimeException e) {
+            log.warn("Maintaining {} partitions failed, retrying in an hour, reason: {}", TABLE_NAME, e.getMessage());
+        }
+    }
+
+    void maintainPartitions(LocalDate today) {
+        var partitionDays = getPartitionDays();
+        var lastDay = today.plusDays(daysAhead);
+        if (partitionDays.isEmpty()) {
+            createPartitions(today, lastDay);
+        } else {
+            var nextDay = partitionDays.get(partitionDays.size() - 1).plusDays(1);
+            if (!nextDay.isAfter(lastDay))
+                addPartitions(nextDay, lastDay);
+        }
+        dropPartitionsBefore(today.minusDays(retentionDays));
+    }
+
+    List<LocalDate> getPartitionDays() {
+        return jdbcTemplate.queryForList("""
+                        SELECT PARTITION_NAME FROM information_schema.PARTITIONS
+                        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL
+                        ORDER BY PARTITION_ORDINAL_POSITION
+                        """, String.class, TABLE_NAME)
+                .stream()
+                .filter(partitionName -> !MAX_PARTITION.equals(partitionName))
+                .map(partitionName -> LocalDate.parse(partitionName.substring(1), PARTITION_DAY_FORMAT))
+                .toList();
+    }
+
+    private void createPartitions(LocalDate fromDay, LocalDate toDay) {
+        log.info("Partitioning {} by day from {} to {}", TABLE_NAME, fromDay, toDay);
+        jdbcTemplate.execute(String.format("ALTER TABLE %s PARTITION BY RANGE (TO_DAYS(ts)) (%s)",
+                TABLE_NAME, partitionDefinitions(fromDay, toDay)));
+    }
+
+    private void addPartitions(LocalDate fromDay, LocalDate toDay) {
+        log.info("Adding {} partitions from {} to {}", TABLE_NAME, fromDay, toDay);
+        jdbcTemplate.execute(String.format("ALTER TABLE %s REORGANIZE PARTITION %s INTO (%s)",
+                TABLE_NAME, MAX_PARTITION, partitionDefinitions(fromDay, toDay)));
+    }
+
+    private void dropPartitionsBefore(LocalDate retentionDay) {
+        var expiredPartitions = getPartitionDays().stream()
+                .filter(day -> day.isBefore(retentionDay))
+                .map(PriceTickPartitionService::partitionName)
+                .collect(Collectors.joining(", "));
+        if (expiredPartitions.isEmpty())
+            return;
+        log.info("Dropping {} partitions older than {}: {}", TABLE_NAME, retentionDay, expiredPartitions);
+        jdbcTemplate.execute(String.format("ALTER TABLE %s DROP PARTITION %s", TABLE_NAME, expiredPartitions));
+    }
+
+    private static String partitionDefinitions(LocalDate fromDay, LocalDate toDay) {
+        var definitions = fromDay.datesUntil(toDay.plusDays(1))
+                .map(day -> String.format("PARTITION %s VALUES LESS THAN (TO_DAYS('%s'))",
+                        partitionName(day), day.plusDays(1)))
+                .collect(Collectors.joining(", "));
+        return definitions + String.format(", PARTITION %s VALUES LESS THAN MAXVALUE", MAX_PARTITION);
+    }
+
+    private static String partitionName(LocalDate day) {
+        return "p" + day.format(PARTITION_DAY_FORMAT);
+    }
+}
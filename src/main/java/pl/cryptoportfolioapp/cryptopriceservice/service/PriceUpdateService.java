@@ -1,18 +1,34 @@
 package pl.cryptoportfolioapp.cryptopriceservice.service;
 
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyQuoteDTO;
+import org.springframework.util.StopWatch;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
 import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceBulkWriter;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceTickWriter;
+import reactor.core.publisher.Flux;
 
-import java.util.Collection;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -22,6 +38,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PriceUpdateService {
 
+    static final String REFRESH_PHASE_METRIC = "price.refresh.phase";
+
     @Autowired
     private CryptocurrencyService cryptocurrencyService;
 
@@ -31,8 +49,62 @@ public class PriceUpdateService {
     @Autowired
     private MarketApiClientService marketApiClientService;
 
+    @Autowired
+    private PriceBulkWriter priceBulkWriter;
+
+    @Autowired
+    private PriceTickWriter priceTickWriter;
+
+    @Autowired
+    private CandleService candleService;
+
+    @Autowired
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    @Autowired
+    private PriceChangeStreamService priceChangeStreamService;
+
+    @Autowired
+    private PriceDeltaFeedService priceDeltaFeedService;
+
+    @Autowired
+    private PriceChangeDetector priceChangeDetector;
+
+    @Autowired
+    private PriceRefreshGuard priceRefreshGuard;
+
+    @Autowired
+    private PriceCheckTracker priceCheckTracker;
+
+    @Value("${price.update.bulk.writer.enabled:false}")
+    private boolean bulkWriterEnabled;
+
+    /**
+     * Refreshes all tracked cryptocurrencies. A call made while a refresh is running gets that refresh's result,
+     * when another instance holds the refresh lease only the snapshot is reloaded with what it persisted
+     * once that instance completed.
+     */
     public List<Price> updateCryptocurrencyPrices() {
-        var cryptocurrencies = cryptocurrencyService.getCryptocurrencies();
+        return priceRefreshGuard.runFullRefresh(() -> {
+            var stopWatch = new StopWatch("price refresh");
+            stopWatch.start("load");
+            return updateCryptocurrencyPrices(stopWatch, cryptocurrencyService.getCryptocurrencies(), true);
+        }, this::publishRefreshedByAnotherInstance);
+    }
+
+    /**
+     * Refreshes only the given cryptocurrencies, other tracked ones keep their prices.
+     */
+    public List<Price> updateCryptocurrencyPrices(List<Cryptocurrency> cryptocurrencies) {
+        return priceRefreshGuard.runPartialRefresh(() -> {
+            var stopWatch = new StopWatch("price refresh");
+            stopWatch.start("load");
+            return updateCryptocurrencyPrices(stopWatch, cryptocurrencies, false);
+        });
+    }
+
+    private List<Price> updateCryptocurrencyPrices(StopWatch stopWatch, List<Cryptocurrency> cryptocurrencies,
+                                                   boolean fullRefresh) {
         if (cryptocurrencies.isEmpty())
             return Collections.emptyList();
         var cryptocurrencyDTOS = cryptocurrencies.stream()
@@ -40,46 +112,187 @@ public class PriceUpdateService {
                         CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrency,
                                 new CycleAvoidingMappingContext()))
                 .toList();
+        stopWatch.stop();
 
+        stopWatch.start("fetch");
         var ids = createCryptocurrenciesIds(cryptocurrencyDTOS);
 
-        var cryptocurrencyQuoteDTOS = marketApiClientService.getLatestPriceByIds(ids)
-                .orElseThrow()
-                .getData()
-                .values();
+        var quotesByCoinMarketId = indexByCoinMarketId(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(ids));
+        stopWatch.stop();
 
-        var prices = updateDtoByNewPrice(cryptocurrencyDTOS, cryptocurrencyQuoteDTOS)
+        stopWatch.start("match");
+        var changedCryptocurrencyDTOS = fullRefresh
+                ? priceChangeDetector.filterChangedOfAll(cryptocurrencyDTOS, quotesByCoinMarketId)
+                : priceChangeDetector.filterChanged(cryptocurrencyDTOS, quotesByCoinMarketId);
+        var prices = updateDtoByNewPrice(changedCryptocurrencyDTOS, quotesByCoinMarketId)
                 .stream()
                 .map(CryptocurrencyMapper.INSTANCE::mapDtoToCryptocurrencyEntity)
                 .map(Cryptocurrency::getPrice)
                 .filter(price -> price != null && price.getPriceCurrent() != null)
                 .toList();
-        priceService.updatePrices(prices);
+        stopWatch.stop();
+
+        stopWatch.start("persist");
+        if (bulkWriterEnabled)
+            priceBulkWriter.write(prices);
+        else
+            priceService.updatePrices(prices);
+        priceTickWriter.append(prices);
+        priceChangeDetector.remember(changedCryptocurrencyDTOS, quotesByCoinMarketId);
+        priceCheckTracker.markChecked(findQuotedIds(cryptocurrencyDTOS, quotesByCoinMarketId), Instant.now());
+        stopWatch.stop();
+
+        stopWatch.start("aggregate");
+        candleService.aggregate(prices);
+        stopWatch.stop();
+
+        stopWatch.start("publish");
+        var snapshot = cryptocurrencySnapshotService.publish();
+        var priceChanges = findPriceChanges(cryptocurrencies, prices, snapshot);
+        priceChangeStreamService.publish(priceChanges);
+        priceDeltaFeedService.publish(priceChanges);
+        stopWatch.stop();
+
+        recordPhases(stopWatch);
         return prices;
     }
 
-    private List<CryptocurrencyDTO> updateDtoByNewPrice(List<CryptocurrencyDTO> cryptocurrencyDTOS,
-                                                        Collection<CryptocurrencyQuoteDTO> cryptocurrencyQuoteDTOS) {
+    /**
+     * Prices were persisted by the lease holder, so changes are found by comparing the snapshot
+     * with the one served before, which keeps price streams of this instance in step with the holder.
+     */
+    private void publishRefreshedByAnotherInstance() {
+        var previousSnapshot = cryptocurrencySnapshotService.getSnapshot();
+        var snapshot = cryptocurrencySnapshotService.publish();
+        priceCheckTracker.markChecked(snapshot.cryptocurrencies()
+                .stream()
+                .filter(cryptocurrencyDTO -> cryptocurrencyDTO.getPriceDTO() != null)
+                .map(CryptocurrencyDTO::getId)
+                .toList(), Instant.now());
+        var priceChanges = findPriceChanges(previousSnapshot, snapshot);
+        priceChangeStreamService.publish(priceChanges);
+        priceDeltaFeedService.publish(priceChanges);
+    }
+
+    List<CryptocurrencyDTO> updateDtoByNewPrice(List<CryptocurrencyDTO> cryptocurrencyDTOS,
+                                                Map<Long, QuoteRecord> quotesByCoinMarketId) {
         return cryptocurrencyDTOS.stream()
                 .<CryptocurrencyDTO>mapMulti((cryptocurrencyDTO, consumer) -> {
-                    cryptocurrencyQuoteDTOS.stream()
-                            .filter(cryptocurrencyQuoteDTO -> cryptocurrencyQuoteDTO.getCoinMarketId() != null)
-                            .filter(cryptocurrencyQuoteDTO ->
-                                    cryptocurrencyQuoteDTO.getCoinMarketId().equals(cryptocurrencyDTO.getCoinMarketId()))
-                            .findFirst()
-                            .ifPresent(cryptocurrencyQuoteDTO ->
-                                    CryptocurrencyMapper.INSTANCE.updateDtoByCryptocurrencyQuoteDto(cryptocurrencyDTO, cryptocurrencyQuoteDTO));
+                    var quoteRecord = quotesByCoinMarketId.get(cryptocurrencyDTO.getCoinMarketId());
+                    if (quoteRecord != null) {
+                        if (cryptocurrencyDTO.getPriceDTO() == null)
+                            cryptocurrencyDTO.setPriceDTO(new PriceDTO());
+                        CryptocurrencyMapper.INSTANCE.updateDtoByQuoteRecord(cryptocurrencyDTO.getPriceDTO(), quoteRecord);
+                    }
                     consumer.accept(cryptocurrencyDTO);
                 })
                 .collect(Collectors.toList());
     }
 
-    private String createCryptocurrenciesIds(List<CryptocurrencyDTO> cryptocurrencyDTOS) {
+    /**
+     * Builds a coinMarketId lookup while quotes are decoded from the response, so matching quotes to tracked
+     * cryptocurrencies is a single pass instead of a scan of every quote per cryptocurrency.
+     * Quotes without coinMarketId are skipped and the first quote wins for duplicated ids.
+     */
+    static Map<Long, QuoteRecord> indexByCoinMarketId(Flux<QuoteRecord> quoteRecords) {
+        return quoteRecords
+                .filter(quoteRecord -> quoteRecord.coinMarketId() != null)
+                .collect(HashMap<Long, QuoteRecord>::new,
+                        (quotesByCoinMarketId, quoteRecord) ->
+                                quotesByCoinMarketId.putIfAbsent(quoteRecord.coinMarketId(), quoteRecord))
+                .block();
+    }
+
+    /**
+     * Compares refreshed prices with the ones loaded at the start of the refresh,
+     * changed cryptocurrencies are taken from the just published snapshot.
+     */
+    static List<PriceChange> findPriceChanges(List<Cryptocurrency> cryptocurrencies, List<Price> prices,
+                                              CryptocurrencySnapshot snapshot) {
+        Map<Long, Price> previousPrices = new HashMap<>((int) (cryptocurrencies.size() / 0.75f) + 1);
+        for (var cryptocurrency : cryptocurrencies) {
+            if (cryptocurrency.getPrice() != null)
+                previousPrices.put(cryptocurrency.getId(), cryptocurrency.getPrice());
+        }
+        var priceChanges = new ArrayList<PriceChange>();
+        for (var price : prices) {
+            var cryptocurrencyId = price.getCryptocurrency().getId();
+            var previousPrice = previousPrices.get(cryptocurrencyId);
+            if (previousPrice != null && !isPriceChanged(previousPrice, price))
+                continue;
+            snapshot.getById(cryptocurrencyId)
+                    .map(cryptocurrencyDTO -> new PriceChange(cryptocurrencyDTO,
+                            previousPrice != null ? CryptocurrencyMapper.INSTANCE.mapEntityToPreviousPriceDto(previousPrice) : null))
+                    .ifPresent(priceChanges::add);
+        }
+        return priceChanges;
+    }
+
+    static List<PriceChange> findPriceChanges(CryptocurrencySnapshot previousSnapshot, CryptocurrencySnapshot snapshot) {
+        var priceChanges = new ArrayList<PriceChange>();
+        for (var cryptocurrencyDTO : snapshot.cryptocurrencies()) {
+            var priceDTO = cryptocurrencyDTO.getPriceDTO();
+            if (priceDTO == null || priceDTO.getPriceCurrent() == null)
+                continue;
+            var previousPrice = previousSnapshot.getById(cryptocurrencyDTO.getId())
+                    .map(CryptocurrencyDTO::getPriceDTO)
+                    .orElse(null);
+            if (previousPrice != null && !isPriceChanged(previousPrice, priceDTO))
+                continue;
+            priceChanges.add(new PriceChange(cryptocurrencyDTO, previousPrice));
+        }
+        return priceChanges;
+    }
+
+    private static boolean isPriceChanged(PriceDTO previousPrice, PriceDTO price) {
+        return !isEqual(previousPrice.getPriceCurrent(), price.getPriceCurrent())
+                || !isEqual(previousPrice.getPercentChange1h(), price.getPercentChange1h())
+                || !isEqual(previousPrice.getPercentChange24h(), price.getPercentChange24h())
+                || !isEqual(previousPrice.getPercentChange7d(), price.getPercentChange7d())
+                || !isEqual(previousPrice.getPercentChange30d(), price.getPercentChange30d())
+                || !isEqual(previousPrice.getPercentChange60d(), price.getPercentChange60d())
+                || !isEqual(previousPrice.getPercentChange90d(), price.getPercentChange90d());
+    }
+
+    private static boolean isPriceChanged(Price previousPrice, Price price) {
+        return !isEqual(previousPrice.getPriceCurrent(), price.getPriceCurrent())
+                || !isEqual(previousPrice.getPercentChange1h(), price.getPercentChange1h())
+                || !isEqual(previousPrice.getPercentChange24h(), price.getPercentChange24h())
+                || !isEqual(previousPrice.getPercentChange7d(), price.getPercentChange7d())
+                || !isEqual(previousPrice.getPercentChange30d(), price.getPercentChange30d())
+                || !isEqual(previousPrice.getPercentChange60d(), price.getPercentChange60d())
+                || !isEqual(previousPrice.getPercentChange90d(), price.getPercentChange90d());
+    }
+
+    private static boolean isEqual(BigDecimal previousValue, BigDecimal value) {
+        return previousValue == null ? value == null : value != null && previousValue.compareTo(value) == 0;
+    }
+
+    private static List<Long> findQuotedIds(List<CryptocurrencyDTO> cryptocurrencyDTOS,
+                                            Map<Long, QuoteRecord> quotesByCoinMarketId) {
+        return cryptocurrencyDTOS.stream()
+                .filter(cryptocurrencyDTO -> quotesByCoinMarketId.containsKey(cryptocurrencyDTO.getCoinMarketId()))
+                .map(CryptocurrencyDTO::getId)
+                .toList();
+    }
+
+    private Set<Long> createCryptocurrenciesIds(List<CryptocurrencyDTO> cryptocurrencyDTOS) {
         return cryptocurrencyDTOS
                 .stream()
                 .map(CryptocurrencyDTO::getCoinMarketId)
-                .map(String::valueOf)
-                .collect(Collectors.joining(","));
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private void recordPhases(StopWatch stopWatch) {
+        for (var taskInfo : stopWatch.getTaskInfo()) {
+            Metrics.timer(REFRESH_PHASE_METRIC, "phase", taskInfo.getTaskName())
+                    .record(taskInfo.getTimeNanos(), TimeUnit.NANOSECONDS);
+        }
+        log.info("Price refresh took {} ms, phases: {}", stopWatch.getTotalTimeMillis(),
+                Arrays.stream(stopWatch.getTaskInfo())
+                        .map(taskInfo -> taskInfo.getTaskName() + "=" + taskInfo.getTimeMillis() + "ms")
+                        .collect(Collectors.joining(", ")));
     }
 
 }
@@ -0,0 +1,206 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.PriceQuoteDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Decodes a quotes latest response while it arrives, one {@link QuoteRecord} per cryptocurrency under {@code data}.
+ * Only {@code id} and the {@code USD} quote are read, every other field is skipped token by token, so neither
+ * the whole body nor the {@link pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuotesDataDTO} tree is held
+ * in memory. Quote values are parsed straight from the number text into {@link FixedPoint} longs.
+ * Cryptocurrencies without a USD quote are not emitted.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public final class QuoteStreamDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final List<String> QUOTE_FIELDS = List.of("price", "percent_change_1h", "percent_change_24h",
+            "percent_change_7d", "percent_change_30d", "percent_change_60d", "percent_change_90d");
+
+    private QuoteStreamDecoder() {
+    }
+
+    public static Flux<QuoteRecord> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            var tokenizer = new Tokenizer();
+            return body.concatMapIterable(tokenizer::feed)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(tokenizer.endOfInput())))
+                    .doFinally(signalType -> tokenizer.close());
+        });
+    }
+
+    private enum Scope {
+        ROOT, DATA, COIN, QUOTE, USD, SKIPPED
+    }
+
+    private static final class Tokenizer {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final Deque<Scope> scopes = new ArrayDeque<>();
+        private String fieldName;
+        private Coin coin;
+
+        private Tokenizer() {
+            try {
+                parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+            feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        private List<QuoteRecord> feed(DataBuffer dataBuffer) {
+            try {
+                var bytes = new byte[dataBuffer.readableByteCount()];
+                dataBuffer.read(bytes);
+                feeder.feedInput(bytes, 0, bytes.length);
+                return parse();
+            } catch (IOException e) {
+                throw new DecodingException("Quotes decoding error: " + e.getMessage(), e);
+            } finally {
+                DataBufferUtils.release(dataBuffer);
+            }
+        }
+
+        private List<QuoteRecord> endOfInput() {
+            feeder.endOfInput();
+            try {
+                return parse();
+            } catch (IOException e) {
+                throw new DecodingException("Quotes decoding error: " + e.getMessage(), e);
+            }
+        }
+
+        private List<QuoteRecord> parse() throws IOException {
+            List<QuoteRecord> quoteRecords = Collections.emptyList();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                switch (token) {
+                    case FIELD_NAME -> fieldName = parser.getCurrentName();
+                    case START_OBJECT, START_ARRAY -> enter(token);
+                    case END_OBJECT, END_ARRAY -> {
+                        if (scopes.pop() == Scope.COIN && coin.hasQuote) {
+                            if (quoteRecords.isEmpty())
+                                quoteRecords = new ArrayList<>();
+                            quoteRecords.add(coin.toQuoteRecord());
+                        }
+                    }
+                    default -> readValue(token);
+                }
+            }
+            return quoteRecords;
+        }
+
+        private void enter(JsonToken token) {
+            var parent = scopes.peek();
+            Scope scope;
+            if (parent == null)
+                scope = Scope.ROOT;
+            else
+                scope = switch (parent) {
+                    case ROOT -> "data".equals(fieldName) ? Scope.DATA : Scope.SKIPPED;
+                    // quotes by symbol nest an array of cryptocurrencies under every symbol
+                    case DATA -> token == JsonToken.START_OBJECT ? Scope.COIN : Scope.DATA;
+                    case COIN -> "quote".equals(fieldName) ? Scope.QUOTE : Scope.SKIPPED;
+                    case QUOTE -> "USD".equals(fieldName) ? Scope.USD : Scope.SKIPPED;
+                    default -> Scope.SKIPPED;
+                };
+            if (scope == Scope.COIN)
+                coin = new Coin();
+            else if (scope == Scope.USD)
+                coin.hasQuote = true;
+            scopes.push(scope);
+            fieldName = null;
+        }
+
+        private void readValue(JsonToken token) throws IOException {
+            if (!token.isNumeric())
+                return;
+            var scope = scopes.peek();
+            if (scope == Scope.COIN && "id".equals(fieldName))
+                coin.coinMarketId = parser.getLongValue();
+            else if (scope == Scope.USD)
+                readQuoteValue();
+        }
+
+        private void readQuoteValue() throws IOException {
+            var field = QUOTE_FIELDS.indexOf(fieldName);
+            if (field < 0)
+                return;
+            try {
+                coin.values[field] = FixedPoint.parse(parser.getTextCharacters(), parser.getTextOffset(),
+                        parser.getTextLength());
+            } catch (ArithmeticException e) {
+                coin.setOverflowValue(field, parser.getDecimalValue());
+            }
+        }
+
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // non-blocking parser holds no resources besides the fed chunk
+            }
+        }
+    }
+
+    private static final class Coin {
+        private Long coinMarketId;
+        private boolean hasQuote;
+        private final long[] values = new long[QUOTE_FIELDS.size()];
+        private BigDecimal[] overflowValues;
+
+        private Coin() {
+            Arrays.fill(values, FixedPoint.NULL);
+        }
+
+        private void setOverflowValue(int field, BigDecimal value) {
+            if (overflowValues == null)
+                overflowValues = new BigDecimal[QUOTE_FIELDS.size()];
+            overflowValues[field] = value;
+        }
+
+        private QuoteRecord toQuoteRecord() {
+            return new QuoteRecord(coinMarketId, values[0], values[1], values[2], values[3], values[4], values[5],
+                    values[6], overflowValues != null ? toOverflowQuote() : null);
+        }
+
+        private PriceQuoteDTO toOverflowQuote() {
+            var decimals = new BigDecimal[QUOTE_FIELDS.size()];
+            for (var field = 0; field < decimals.length; field++) {
+                decimals[field] = overflowValues[field] != null ?
+                        overflowValues[field] :
+                        FixedPoint.toBigDecimal(values[field]);
+            }
+            return new PriceQuoteDTO()
+                    .setPriceCurrent(decimals[0])
+                    .setPercentChange1h(decimals[1])
+                    .setPercentChange24h(decimals[2])
+                    .setPercentChange7d(decimals[3])
+                    .setPercentChange30d(decimals[4])
+                    .setPercentChange60d(decimals[5])
+                    .setPercentChange90d(decimals[6]);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import pl.cryptoportfolioapp.cryptopriceservice.config.AdaptiveRefreshProperties;
+
+/**
+ * Refresh cadence class of a cryptocurrency, from the most to the least frequently refreshed.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+public enum RefreshTier {
+    FAST, NORMAL, SLOW, DORMANT;
+
+    public RefreshTier faster() {
+        return this == FAST ? FAST : values()[ordinal() - 1];
+    }
+
+    public AdaptiveRefreshProperties.Tier getSettings(AdaptiveRefreshProperties properties) {
+        return switch (this) {
+            case FAST -> properties.getFast();
+            case NORMAL -> properties.getNormal();
+            case SLOW -> properties.getSlow();
+            case DORMANT -> properties.getDormant();
+        };
+    }
+}
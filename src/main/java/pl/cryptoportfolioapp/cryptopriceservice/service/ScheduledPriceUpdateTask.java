@@ -4,6 +4,7 @@ package pl.cryptoportfolioapp.cryptopriceservice.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -12,6 +13,7 @@ import java.util.concurrent.TimeUnit;
 @Component
 @Slf4j
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "price.refresh.adaptive.enabled", havingValue = "false", matchIfMissing = true)
 public class ScheduledPriceUpdateTask {
 
     @Autowired
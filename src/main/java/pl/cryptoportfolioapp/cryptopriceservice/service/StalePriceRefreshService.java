@@ -0,0 +1,132 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Refreshes cryptocurrencies read by clients when their price is older than the freshness SLA, while the read
+ * itself keeps answering with the cached snapshot (stale-while-revalidate). Stale reads arriving within
+ * the coalescing window are refreshed by one batched upstream call, batches never overlap each other.
+ * A coin is requested again only after the retry interval, so a failed refresh is not repeated on every read.
+ * Requests older than the retry interval are expired at most once per interval, so deleted coins are not kept.
+ * Freshness is measured from the later of the price {@code lastUpdate} and the last successful check
+ * of the coin, so a quote that did not change keeps the coin fresh as well.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Service
+@Slf4j
+public class StalePriceRefreshService {
+
+    static final String STALE_READS_METRIC = "price.refresh.on.read.coins";
+
+    private static final int MAX_BATCH_SIZE = 1_000;
+
+    @Autowired
+    private CryptocurrencyService cryptocurrencyService;
+
+    @Autowired
+    private PriceUpdateService priceUpdateService;
+
+    @Autowired
+    private PriceCheckTracker priceCheckTracker;
+
+    @Value("${price.refresh.on.read.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${price.refresh.on.read.freshness:PT5M}")
+    private Duration freshness = Duration.ofMinutes(5);
+
+    @Value("${price.refresh.on.read.coalesce-window:PT0.05S}")
+    private Duration coalesceWindow = Duration.ofMillis(50);
+
+    @Value("${price.refresh.on.read.retry-interval:PT30S}")
+    private Duration retryInterval = Duration.ofSeconds(30);
+
+    private final Sinks.Many<Long> staleIds = Sinks.many().unicast().onBackpressureBuffer();
+    private final Map<Long, Instant> lastRequests = new ConcurrentHashMap<>();
+    private volatile Instant lastExpiry = Instant.MIN;
+    private Disposable refreshes;
+
+    @PostConstruct
+    void startRefreshes() {
+        refreshes = staleIds.asFlux()
+                .bufferTimeout(MAX_BATCH_SIZE, coalesceWindow)
+                .onBackpressureBuffer()
+                .concatMap(ids -> Mono.fromRunnable(() -> refresh(ids))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stopRefreshes() {
+        if (refreshes != null)
+            refreshes.dispose();
+    }
+
+    public void requestRefreshIfStale(CryptocurrencyDTO cryptocurrencyDTO) {
+        requestRefreshIfStale(cryptocurrencyDTO, Instant.now());
+    }
+
+    void requestRefreshIfStale(CryptocurrencyDTO cryptocurrencyDTO, Instant now) {
+        if (!enabled)
+            return;
+        expireLastRequests(now);
+        if (!isStale(cryptocurrencyDTO, now))
+            return;
+        var id = cryptocurrencyDTO.getId();
+        var lastRequest = lastRequests.get(id);
+        if (lastRequest != null && lastRequest.plus(retryInterval).isAfter(now))
+            return;
+        lastRequests.put(id, now);
+        Metrics.counter(STALE_READS_METRIC, "outcome", "requested").increment();
+        staleIds.emitNext(id, (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+
+    private void expireLastRequests(Instant now) {
+        if (lastExpiry.plus(retryInterval).isAfter(now))
+            return;
+        lastExpiry = now;
+        lastRequests.values().removeIf(lastRequest -> !lastRequest.plus(retryInterval).isAfter(now));
+    }
+
+    private boolean isStale(CryptocurrencyDTO cryptocurrencyDTO, Instant now) {
+        var priceDTO = cryptocurrencyDTO.getPriceDTO();
+        if (priceDTO == null || priceDTO.getPriceCurrent() == null || priceDTO.getLastUpdate() == null)
+            return true;
+        var freshSince = priceDTO.getLastUpdate().toInstant(ZoneOffset.UTC);
+        var checkedAt = priceCheckTracker.getCheckedAt(cryptocurrencyDTO.getId());
+        if (checkedAt.isPresent() && checkedAt.get().isAfter(freshSince))
+            freshSince = checkedAt.get();
+        return freshSince.plus(freshness).isBefore(now);
+    }
+
+    private void refresh(List<Long> ids) {
+        log.info("Refreshing {} stale cryptocurrencies read by clients", ids.size());
+        try {
+            priceUpdateService.updateCryptocurrencyPrices(cryptocurrencyService.getByIds(new LinkedHashSet<>(ids)));
+            Metrics.counter(STALE_READS_METRIC, "outcome", "refreshed").increment(ids.size());
+        } catch (RuntimeException e) {
+            Metrics.counter(STALE_READS_METRIC, "outcome", "failed").increment(ids.size());
+            log.warn("Stale price refresh failed, reason: {}", e.getMessage());
+        }
+    }
+}
@@ -4,12 +4,14 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.OnErrorClientDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.exception.MarketApiClientException;
 import pl.cryptoportfolioapp.cryptopriceservice.service.MarketApiClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
@@ -28,8 +30,22 @@ public class MarketApiClientImpl implements MarketApiClient {
     private WebClient webClient;
 
     @Override
-    public <T> Optional<T> getRequest(URI uri, Class<T> map) {
-        log.info("Calling get request for path:{}, query:{}", uri.getPath(), uri.getQuery());
+    public <T> Mono<T> get(URI uri, Class<T> map) {
+        return retrieve(uri)
+                .bodyToMono(map)
+                .doOnSubscribe(subscription ->
+                        log.info("Calling get request for path:{}, query:{}", uri.getPath(), uri.getQuery()));
+    }
+
+    @Override
+    public Flux<DataBuffer> getBody(URI uri) {
+        return retrieve(uri)
+                .bodyToFlux(DataBuffer.class)
+                .doOnSubscribe(subscription ->
+                        log.info("Calling streamed get request for path:{}, query:{}", uri.getPath(), uri.getQuery()));
+    }
+
+    private WebClient.ResponseSpec retrieve(URI uri) {
         return this.webClient.get()
                 .uri(uriBuilder -> uriBuilder.path(uri.getPath())
                         .query(uri.getQuery())
@@ -40,8 +56,6 @@ public class MarketApiClientImpl implements MarketApiClient {
                                 clientResponse.statusCode(),
                                 "Error during calling get request",
                                 Optional.ofNullable(body.getStatus().getMessage()).orElse("No message")
-                        ))))
-                .bodyToMono(map)
-                .blockOptional();
+                        ))));
     }
 }
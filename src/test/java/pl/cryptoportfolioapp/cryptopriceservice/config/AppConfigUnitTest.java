@@ -0,0 +1,61 @@
+package pl.cryptoportfolioapp.cryptopriceservice.config;
+
+import io.netty.channel.ChannelOption;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@Tag("UnitTest")
+class AppConfigUnitTest {
+
+    @Test
+    void whenClientPropertiesSet_thenBoundToTypedProperties() {
+        new ApplicationContextRunner()
+                .withUserConfiguration(ClientPropertiesConfig.class)
+                .withPropertyValues(
+                        "api.coin.market.cap.client.response-timeout=7s",
+                        "api.coin.market.cap.client.http2=true",
+                        "api.coin.market.cap.client.pool.max-connections=4",
+                        "api.coin.market.cap.client.pool.pending-acquire-timeout=250ms")
+                .run(context -> {
+                    var clientProperties = context.getBean(CoinMarketCapClientProperties.class);
+                    assertThat(clientProperties.getResponseTimeout()).isEqualTo(Duration.ofSeconds(7));
+                    assertThat(clientProperties.isHttp2()).isTrue();
+                    assertThat(clientProperties.getPool().getMaxConnections()).isEqualTo(4);
+                    assertThat(clientProperties.getPool().getPendingAcquireTimeout()).isEqualTo(Duration.ofMillis(250));
+                    assertThat(clientProperties.getConnectTimeout()).isEqualTo(Duration.ofSeconds(5));
+                });
+    }
+
+    @Test
+    void whenHttpClientCreated_thenTimeoutsAndProtocolsApplied() {
+        var clientProperties = new CoinMarketCapClientProperties();
+        clientProperties.setConnectTimeout(Duration.ofSeconds(2));
+        clientProperties.setResponseTimeout(Duration.ofSeconds(3));
+
+        var configuration = AppConfig.createCoinMarketCapHttpClient(clientProperties).configuration();
+
+        assertThat(configuration.responseTimeout()).isEqualTo(Duration.ofSeconds(3));
+        assertThat(configuration.options().get(ChannelOption.CONNECT_TIMEOUT_MILLIS)).isEqualTo(2000);
+        assertThat(configuration.protocols()).containsExactly(HttpProtocol.HTTP11);
+
+        clientProperties.setHttp2(true);
+        assertThat(AppConfig.createCoinMarketCapHttpClient(clientProperties).configuration().protocols())
+                .containsExactlyInAnyOrder(HttpProtocol.H2, HttpProtocol.HTTP11);
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(CoinMarketCapClientProperties.class)
+    static class ClientPropertiesConfig {
+    }
+}
@@ -24,6 +24,7 @@ import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExte
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
 import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencySnapshotService;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -77,6 +78,9 @@ public class CryptocurrencyControllerIntegrationTest {
     @Autowired
     private CryptocurrencyRepository cryptocurrencyRepository;
 
+    @Autowired
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
     private Long bitcoinID;
     private Long ethereumID;
 
@@ -149,6 +153,7 @@ public class CryptocurrencyControllerIntegrationTest {
 
     @BeforeEach
     public void setup() {
+        cryptocurrencySnapshotService.publish();
         var cryptos = cryptocurrencyRepository.findAll();
 
         bitcoinID = cryptos.stream()
@@ -8,28 +8,68 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyBatchResultDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyPostDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.exception.CryptocurrencyNotFoundException;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.InvalidCandleRangeException;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
 import pl.cryptoportfolioapp.cryptopriceservice.exception.MarketApiClientException;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CandleInterval;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencyCursor;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.model.PriceCandle;
 import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CandleService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyBatchRegistrationService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyExportService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyPage;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyPageService;
 import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.JsonPayload;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencySnapshot;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencySnapshotService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.PriceChange;
+import pl.cryptoportfolioapp.cryptopriceservice.service.CryptocurrencyPopularityService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.StalePriceRefreshService;
+import pl.cryptoportfolioapp.cryptopriceservice.service.PriceChangeStreamService;
+import reactor.core.publisher.Flux;
 import pl.cryptoportfolioapp.cryptopriceservice.service.MarketApiClientService;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.Collections;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -42,6 +82,8 @@ class CryptocurrencyControllerUnitTest {
     private final String path = "/api/v1/cryptocurrency";
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private CryptocurrencyController cryptocurrencyController;
     @MockBean
     private CryptocurrencyService cryptocurrencyService;
 
@@ -51,6 +93,30 @@ class CryptocurrencyControllerUnitTest {
     @MockBean
     private MarketApiClientService marketApiClientService;
 
+    @MockBean
+    private CandleService candleService;
+
+    @MockBean
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    @MockBean
+    private PriceChangeStreamService priceChangeStreamService;
+
+    @MockBean
+    private CryptocurrencyPopularityService cryptocurrencyPopularityService;
+
+    @MockBean
+    private StalePriceRefreshService stalePriceRefreshService;
+
+    @MockBean
+    private CryptocurrencyBatchRegistrationService cryptocurrencyBatchRegistrationService;
+
+    @MockBean
+    private CryptocurrencyPageService cryptocurrencyPageService;
+
+    @MockBean
+    private CryptocurrencyExportService cryptocurrencyExportService;
+
     @Autowired
     private ObjectMapper objectMapper;
     private Cryptocurrency cryptocurrencyBTC;
@@ -97,8 +163,8 @@ class CryptocurrencyControllerUnitTest {
 
     @Test
     void whenGetCryptocurrencyById_thenReturn200JsonCryptocurrencyData() throws Exception {
-        when(cryptocurrencyService.getById(any()))
-                .thenReturn(cryptocurrencyBTC);
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshotOf(cryptocurrencyBTC));
 
         mockMvc.perform(MockMvcRequestBuilders.get(path + "/1"))
                 .andDo(print())
@@ -108,11 +174,35 @@ class CryptocurrencyControllerUnitTest {
                 .andExpect(jsonPath("$.symbol").value("BTC"))
                 .andExpect(jsonPath("$.coinMarketId").value(1L))
                 .andExpect(jsonPath("$.price.priceCurrent").isNumber());
+
+        verify(cryptocurrencyPopularityService).recordRequest(1L);
+        verify(stalePriceRefreshService).requestRefreshIfStale(any());
+    }
+
+    @Test
+    void whenGetCryptocurrencyByIdMissingInSnapshot_thenReturn200FromDatabase() throws Exception {
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(CryptocurrencySnapshot.EMPTY);
+        when(cryptocurrencyService.getById(1L))
+                .thenReturn(cryptocurrencyBTC);
+        when(cryptocurrencySnapshotService.serialize(any()))
+                .thenAnswer(invocation -> JsonPayload.of(objectMapper.writeValueAsBytes(invocation.getArgument(0)), -1L));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L))
+                .andExpect(jsonPath("$.symbol").value("BTC"));
+
+        verify(cryptocurrencyPopularityService).recordRequest(1L);
+        verify(stalePriceRefreshService).requestRefreshIfStale(any());
     }
 
     @Test
     void whenGetCryptocurrencyByIdNotExisted_thenReturn404JsonError() throws Exception {
-        when(cryptocurrencyService.getById(any()))
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(CryptocurrencySnapshot.EMPTY);
+        when(cryptocurrencyService.getById(1L))
                 .thenThrow(new CryptocurrencyNotFoundException(1L));
 
         mockMvc.perform(MockMvcRequestBuilders.get(path + "/1"))
@@ -124,8 +214,8 @@ class CryptocurrencyControllerUnitTest {
 
     @Test
     void whenGetCryptocurrencies_thenReturn200JsonListCryptocurrenciesData() throws Exception {
-        when(cryptocurrencyService.getCryptocurrencies())
-                .thenReturn(Collections.singletonList(cryptocurrencyBTC));
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshotOf(cryptocurrencyBTC));
 
         mockMvc.perform(MockMvcRequestBuilders.get(path))
                 .andDo(print())
@@ -133,10 +223,103 @@ class CryptocurrencyControllerUnitTest {
                 .andExpect(jsonPath("$").isNotEmpty());
     }
 
+    @Test
+    void whenGetCryptocurrenciesAcceptingGzip_thenReturnCompressedSnapshotBytesWithETag() throws Exception {
+        var snapshot = snapshotOf(cryptocurrencyBTC, cryptocurrencyETH);
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshot);
+
+        var response = mockMvc.perform(MockMvcRequestBuilders.get(path)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.listPayload().gzipETag()))
+                .andReturn()
+                .getResponse();
+
+        try (var inputStream = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(snapshot.listPayload().json());
+        }
+    }
+
+    @Test
+    void whenGetCryptocurrencyById_thenReturnSnapshotBytesWithStrongETag() throws Exception {
+        var snapshot = snapshotOf(cryptocurrencyBTC);
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshot);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.getPayloadById(1L).orElseThrow().eTag()))
+                .andExpect(content().bytes(snapshot.getPayloadById(1L).orElseThrow().json()));
+    }
+
+    @Test
+    void whenGetCryptocurrenciesWithMatchingIfNoneMatch_thenReturn304WithoutBody() throws Exception {
+        var snapshot = snapshotOf(cryptocurrencyBTC, cryptocurrencyETH);
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshot);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path)
+                        .header(HttpHeaders.IF_NONE_MATCH, snapshot.listPayload().eTag()))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.listPayload().eTag()))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void whenGetCryptocurrenciesRefusingGzipByQualityValue_thenReturnUncompressedSnapshotBytes() throws Exception {
+        var snapshot = snapshotOf(cryptocurrencyBTC, cryptocurrencyETH);
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshot);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *;q=0.5"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.listPayload().eTag()))
+                .andExpect(content().bytes(snapshot.listPayload().json()));
+    }
+
+    @Test
+    void whenGetCryptocurrencyByIdNotModifiedSince_thenReturn304() throws Exception {
+        var snapshot = snapshotOf(cryptocurrencyBTC);
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshot);
+        var ifModifiedSince = snapshot.getPayloadById(1L).orElseThrow().lastModified() + 1000;
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/1")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, DateTimeFormatter.RFC_1123_DATE_TIME
+                                .format(Instant.ofEpochMilli(ifModifiedSince).atZone(ZoneOffset.UTC))))
+                .andDo(print())
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void whenGetCryptocurrencyByIdWithStaleETag_thenReturn200WithLastModified() throws Exception {
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshotOf(cryptocurrencyBTC));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(jsonPath("$.name").value("Bitcoin"));
+    }
+
     @Test
     void whenGetCryptosByQueryName_thenReturn200JsonCryptocurrencyData() throws Exception {
-        when(cryptocurrencyService.getByName(List.of("Bitcoin", "Ethereum")))
-                .thenReturn(List.of(cryptocurrencyBTC, cryptocurrencyETH));
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshotOf(cryptocurrencyBTC, cryptocurrencyETH));
 
         mockMvc.perform(MockMvcRequestBuilders.get(path + "?name=Bitcoin,Ethereum"))
                 .andDo(print())
@@ -153,8 +336,8 @@ class CryptocurrencyControllerUnitTest {
 
     @Test
     void whenGetCryptocurrenciesByQueryTwoNameWhenNoExist_thenReturn200AndEmptyJson() throws Exception {
-        when(cryptocurrencyService.getByName(List.of("Bitcoin", "Ethereum")))
-                .thenReturn(List.of());
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(CryptocurrencySnapshot.EMPTY);
 
         mockMvc.perform(MockMvcRequestBuilders.get(path + "?name=Bitcoin,Ethereum"))
                 .andDo(print())
@@ -164,8 +347,8 @@ class CryptocurrencyControllerUnitTest {
 
     @Test
     void whenGetCryptocurrenciesByQueryTwoNameWhenOnlyOneExist_thenReturnCryptoExistedAnd200() throws Exception {
-        when(cryptocurrencyService.getByName(List.of("Bitcoin", "Ethereum")))
-                .thenReturn(List.of(cryptocurrencyETH));
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshotOf(cryptocurrencyETH));
 
         mockMvc.perform(MockMvcRequestBuilders.get(path + "?name=Bitcoin,Ethereum"))
                 .andDo(print())
@@ -176,6 +359,37 @@ class CryptocurrencyControllerUnitTest {
                 .andExpect(jsonPath("[0].price").isNotEmpty());
     }
 
+    @Test
+    void whenGetCryptocurrenciesByNameMissingFromSnapshot_thenMissesLookedUpInDatabase() throws Exception {
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshotOf(cryptocurrencyETH));
+        when(cryptocurrencyService.getByName(List.of("Bitcoin")))
+                .thenReturn(List.of(cryptocurrencyBTC));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "?name=Bitcoin,ethereum"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("[0].name").value("Bitcoin"))
+                .andExpect(jsonPath("[0].price").isNotEmpty())
+                .andExpect(jsonPath("[1].name").value("Ethereum"));
+    }
+
+    @Test
+    void whenGetCryptocurrenciesBySymbol_thenSnapshotHitsAndDatabaseMissesReturned() throws Exception {
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(snapshotOf(cryptocurrencyBTC));
+        when(cryptocurrencyService.getBySymbol(List.of("eth", "DOGE")))
+                .thenReturn(List.of(cryptocurrencyETH));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "?symbol=btc,eth,DOGE"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("[0].symbol").value("BTC"))
+                .andExpect(jsonPath("[1].symbol").value("ETH"));
+        verify(cryptocurrencyPopularityService).recordRequest(cryptocurrencyETH.getId());
+    }
+
     @Test
     void whenPostCryptocurrency_thenReturnStatus201AndBodyData() throws Exception {
         when(cryptocurrencyService.addCryptocurrency(any(Cryptocurrency.class)))
@@ -197,6 +411,70 @@ class CryptocurrencyControllerUnitTest {
                 .andExpect(jsonPath("$.price").isNotEmpty());
     }
 
+    @Test
+    void whenPostCryptocurrencyBatchPartiallyFailed_thenReturnStatus207AndResultPerEntry() throws Exception {
+        var cryptocurrencyDTO = CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrencyBTC,
+                new CycleAvoidingMappingContext());
+        when(cryptocurrencyBatchRegistrationService.registerCryptocurrencies(anyList()))
+                .thenReturn(List.of(
+                        new CryptocurrencyBatchResultDTO().setIndex(0).setStatus(201).setCryptocurrencyDTO(cryptocurrencyDTO),
+                        new CryptocurrencyBatchResultDTO().setIndex(1).setStatus(409)
+                                .setErrors(List.of("Cryptocurrency symbol already exists: BTC"))));
+
+        var body = List.of(
+                new CryptocurrencyPostDTO().setName("Bitcoin").setSymbol("BTC").setCoinMarketId(1L),
+                new CryptocurrencyPostDTO().setName("Bitcoin Two").setSymbol("BTC").setCoinMarketId(2L));
+
+        mockMvc.perform(MockMvcRequestBuilders.post(path + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andDo(print())
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("[0].status").value(201))
+                .andExpect(jsonPath("[0].cryptocurrency.symbol").value("BTC"))
+                .andExpect(jsonPath("[1].status").value(409))
+                .andExpect(jsonPath("[1].errors[0]").value("Cryptocurrency symbol already exists: BTC"))
+                .andExpect(jsonPath("[1].cryptocurrency").doesNotExist());
+    }
+
+    @Test
+    void whenGetCryptocurrenciesWithLimitAndSort_thenReturnPageWithNextCursor() throws Exception {
+        var sort = CryptocurrencySort.parse("priceCurrent,desc");
+        var next = new CryptocurrencyCursor(sort, new BigDecimal("10500.001"), 1L);
+        when(cryptocurrencyPageService.getPage(1, sort, null, null))
+                .thenReturn(new CryptocurrencyPage(List.of(cryptocurrencyBTC), next));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path)
+                        .param("limit", "1")
+                        .param("sort", "priceCurrent,desc"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cryptocurrencies[0].name").value("Bitcoin"))
+                .andExpect(jsonPath("$.nextCursor").value(next.encode()));
+        verifyNoInteractions(cryptocurrencySnapshotService);
+    }
+
+    @Test
+    void whenGetCryptocurrenciesWithUnknownSort_thenReturnStatus400() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(path)
+                        .param("limit", "10")
+                        .param("sort", "marketCap"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid value 'marketCap' of parameter sort"));
+    }
+
+    @Test
+    void whenGetCryptocurrenciesSortedByUnindexedPriceField_thenReturnStatus400() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(path)
+                        .param("limit", "10")
+                        .param("sort", "percentChange7d,desc"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid value 'percentChange7d,desc' of parameter sort"));
+        verifyNoInteractions(cryptocurrencyPageService);
+    }
+
     @Test
     void whenPostCryptocurrencyNoMarketId_thenReturnStatus201AndBodyData() throws Exception {
         when(cryptocurrencyService.addCryptocurrency(any(Cryptocurrency.class)))
@@ -303,4 +581,173 @@ class CryptocurrencyControllerUnitTest {
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.status").value("NOT_FOUND"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenExportCryptocurrencies_thenStreamNdjsonWrittenByExportService() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(0);
+            outputStream.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+            return null;
+        }).when(cryptocurrencyExportService).exportNdjson(any());
+
+        var mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(path + "/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void whenStreamPriceChanges_thenReturnServerSentEventPerChangedCryptocurrency() throws Exception {
+        var cryptocurrencyDTO = CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrencyBTC,
+                new CycleAvoidingMappingContext());
+        when(priceChangeStreamService.stream())
+                .thenReturn(Flux.just(new PriceChange(cryptocurrencyDTO, null)));
+
+        var mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(path + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:price")))
+                .andExpect(content().string(containsString("\"name\":\"Bitcoin\"")));
+        assertThat(mvcResult.getRequest().getAsyncContext().getTimeout())
+                .isEqualTo(Duration.ofMinutes(30).toMillis());
+    }
+
+    @Test
+    void whenStreamClientWriteBlocks_thenPublishStillReturns() throws Exception {
+        var streamService = new PriceChangeStreamService();
+        when(priceChangeStreamService.stream()).thenReturn(streamService.stream());
+        var sending = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var emitter = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        var cryptocurrencyDTO = CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrencyBTC,
+                new CycleAvoidingMappingContext());
+        cryptocurrencyController.streamPriceChanges(emitter);
+
+        try {
+            var published = CompletableFuture.runAsync(() -> {
+                for (var refresh = 0; refresh < 10; refresh++)
+                    streamService.publish(List.of(new PriceChange(cryptocurrencyDTO, null)));
+            });
+
+            assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+            published.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            emitter.complete();
+        }
+    }
+
+    @Test
+    void whenStreamPriceChangesIsIdle_thenSendHeartbeatComments() throws Exception {
+        var cryptocurrencyDTO = CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrencyBTC,
+                new CycleAvoidingMappingContext());
+        when(priceChangeStreamService.stream())
+                .thenReturn(Flux.just(new PriceChange(cryptocurrencyDTO, null)).delaySubscription(Duration.ofMillis(200)));
+
+        ReflectionTestUtils.setField(cryptocurrencyController, "streamHeartbeatInterval", Duration.ofMillis(20));
+        MvcResult mvcResult;
+        try {
+            mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(path + "/stream"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+        } finally {
+            ReflectionTestUtils.setField(cryptocurrencyController, "streamHeartbeatInterval", Duration.ofSeconds(15));
+        }
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(":heartbeat")))
+                .andExpect(content().string(containsString("event:price")));
+    }
+
+    @Test
+    void whenGetCandles_thenReturn200JsonCandlesOfInterval() throws Exception {
+        var openTime = LocalDateTime.of(2022, 1, 1, 10, 5);
+        when(candleService.getCandles(1L, CandleInterval.FIVE_MINUTES,
+                LocalDateTime.of(2022, 1, 1, 10, 0), LocalDateTime.of(2022, 1, 1, 11, 0)))
+                .thenReturn(List.of(PriceCandle.builder()
+                        .cryptocurrencyId(1L)
+                        .interval(CandleInterval.FIVE_MINUTES)
+                        .openTime(openTime)
+                        .priceOpen(new BigDecimal("100.5"))
+                        .priceHigh(new BigDecimal("110.5"))
+                        .priceLow(new BigDecimal("99.5"))
+                        .priceClose(new BigDecimal("105.5"))
+                        .ticks(3)
+                        .build()));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/1/candles")
+                        .param("interval", "5m")
+                        .param("from", "2022-01-01T10:00:00")
+                        .param("to", "2022-01-01T11:00:00"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].openTime").value("2022-01-01T10:05:00"))
+                .andExpect(jsonPath("$[0].priceHigh").value(110.5))
+                .andExpect(jsonPath("$[0].priceLow").value(99.5))
+                .andExpect(jsonPath("$[0].ticks").value(3));
+    }
+
+    @Test
+    void whenGetCandlesWithUnsupportedInterval_thenReturn400JsonError() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/1/candles")
+                        .param("interval", "2m"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("BAD_REQUEST"));
+        verifyNoInteractions(candleService);
+    }
+
+    @Test
+    void whenGetCandlesOfInvalidRange_thenReturn400JsonError() throws Exception {
+        when(candleService.getCandles(1L, CandleInterval.FIVE_MINUTES,
+                LocalDateTime.of(2022, 1, 1, 11, 0), LocalDateTime.of(2022, 1, 1, 10, 0)))
+                .thenThrow(new InvalidCandleRangeException("From 2022-01-01T11:00 is after to 2022-01-01T10:00"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/1/candles")
+                        .param("interval", "5m")
+                        .param("from", "2022-01-01T11:00:00")
+                        .param("to", "2022-01-01T10:00:00"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("BAD_REQUEST"))
+                .andExpect(jsonPath("$.message").value("From 2022-01-01T11:00 is after to 2022-01-01T10:00"));
+    }
+
+    @Test
+    void whenGetCandlesOfNonNumericId_thenReturn400WithoutJsonError() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(path + "/abc/candles")
+                        .param("interval", "5m"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(""));
+        verifyNoInteractions(candleService);
+    }
+
+    private CryptocurrencySnapshot snapshotOf(Cryptocurrency... cryptocurrencies) {
+        return CryptocurrencySnapshot.of(Arrays.stream(cryptocurrencies)
+                .map(cryptocurrency -> CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrency,
+                        new CycleAvoidingMappingContext()))
+                .toList(), objectMapper);
+    }
+}
@@ -15,7 +15,8 @@ public class MySqlTestContainerExtension implements BeforeAllCallback {
 
     @Override
     public void beforeAll(ExtensionContext extensionContext) {
-        mySQLContainer.withReuse(true);
+        mySQLContainer.withReuse(true)
+                .withUrlParam("rewriteBatchedStatements", "true");
         mySQLContainer.start();
         System.setProperty("spring.datasource.url", mySQLContainer.getJdbcUrl());
         System.setProperty("spring.datasource.username", mySQLContainer.getUsername());
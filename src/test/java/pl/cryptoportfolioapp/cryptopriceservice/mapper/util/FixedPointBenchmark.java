@@ -0,0 +1,100 @@
+package pl.cryptoportfolioapp.cryptopriceservice.mapper.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding and change detection of one refresh worth of quote values, {@link BigDecimal} against {@link FixedPoint}.
+ * Run the main method from the test classpath, JMH forks its own JVM for the measurements.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FixedPointBenchmark {
+
+    private static final int QUOTE_FIELDS = 7;
+
+    @Param({"1000", "10000"})
+    private int coins;
+
+    private char[][] numbers;
+    private BigDecimal[] previousDecimals;
+    private long[] previousFixedPoints;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(coins);
+        numbers = new char[coins * QUOTE_FIELDS][];
+        previousDecimals = new BigDecimal[numbers.length];
+        previousFixedPoints = new long[numbers.length];
+        for (var i = 0; i < numbers.length; i++) {
+            var value = i % QUOTE_FIELDS == 0 ?
+                    BigDecimal.valueOf(random.nextDouble() * 50_000) :
+                    BigDecimal.valueOf(random.nextGaussian() * 10);
+            numbers[i] = value.toPlainString().toCharArray();
+            var previous = random.nextBoolean() ? value : value.add(BigDecimal.ONE);
+            previousDecimals[i] = previous.setScale(FixedPoint.SCALE, RoundingMode.HALF_UP);
+            previousFixedPoints[i] = FixedPoint.valueOf(previous);
+        }
+    }
+
+    @Benchmark
+    public int bigDecimalDecodeAndCompare() {
+        var changed = 0;
+        for (var i = 0; i < numbers.length; i++) {
+            var value = new BigDecimal(numbers[i], 0, numbers[i].length);
+            if (value.compareTo(previousDecimals[i]) != 0)
+                changed++;
+        }
+        return changed;
+    }
+
+    @Benchmark
+    public int fixedPointDecodeAndCompare() {
+        var changed = 0;
+        for (var i = 0; i < numbers.length; i++) {
+            var value = FixedPoint.parse(numbers[i], 0, numbers[i].length);
+            if (value != previousFixedPoints[i])
+                changed++;
+        }
+        return changed;
+    }
+
+    @Benchmark
+    public BigDecimal[] bigDecimalRescale() {
+        var decimals = new BigDecimal[numbers.length];
+        for (var i = 0; i < numbers.length; i++) {
+            decimals[i] = new BigDecimal(numbers[i], 0, numbers[i].length).setScale(FixedPoint.SCALE,
+                    RoundingMode.HALF_UP);
+        }
+        return decimals;
+    }
+
+    @Benchmark
+    public long[] fixedPointRescale() {
+        var fixedPoints = new long[numbers.length];
+        for (var i = 0; i < numbers.length; i++) {
+            fixedPoints[i] = FixedPoint.parse(numbers[i], 0, numbers[i].length);
+        }
+        return fixedPoints;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FixedPointBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
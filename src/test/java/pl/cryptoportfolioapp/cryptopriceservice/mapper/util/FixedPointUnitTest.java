@@ -0,0 +1,61 @@
+package pl.cryptoportfolioapp.cryptopriceservice.mapper.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@Tag("UnitTest")
+class FixedPointUnitTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0", "-0", "1", "-1", "21000.5", "6602.60701122", "0.988615", "-12.1352", "9223372.036854775807",
+            "-9223372.036854775807", "0.000000000001", "0.0000000000005", "-0.0000000000005", "0.0000000000004999",
+            "1.0000000000015", "3.2e-7", "1.5E+3", "12.5e0", "0.00000000000000000000000000001",
+            "0.12345678901234567890123456789", "1234567.1234567890125"
+    })
+    void whenParseNumber_thenEqualToBigDecimalRoundedHalfUp(String number) {
+        var chars = ("[" + number + "]").toCharArray();
+
+        var expected = FixedPoint.parse(chars, 1, number.length());
+
+        assertThat(expected)
+                .isEqualTo(new BigDecimal(number).setScale(FixedPoint.SCALE, RoundingMode.HALF_UP)
+                        .unscaledValue().longValueExact());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"9223372.036854775808", "123456789012.5", "-10000000", "1e7", "12345678901234567890123"})
+    void whenParseNumberOutOfRange_thenThrowArithmeticExc(String number) {
+        assertThatThrownBy(() -> FixedPoint.parse(number.toCharArray(), 0, number.length()))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", ".", "1e", "1e+", "abc", "1x"})
+    void whenParseNotNumber_thenThrowNumberFormatExc(String text) {
+        assertThatThrownBy(() -> FixedPoint.parse(text.toCharArray(), 0, text.length()))
+                .isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    void whenConvertBigDecimal_thenRoundTripAtPriceScale() {
+        var decimal = new BigDecimal("1500.123456789012");
+
+        var expected = FixedPoint.toBigDecimal(FixedPoint.valueOf(decimal));
+
+        assertThat(expected).isEqualTo(decimal);
+        assertThat(FixedPoint.valueOf(null)).isEqualTo(FixedPoint.NULL);
+        assertThat(FixedPoint.toBigDecimal(FixedPoint.NULL)).isNull();
+    }
+}
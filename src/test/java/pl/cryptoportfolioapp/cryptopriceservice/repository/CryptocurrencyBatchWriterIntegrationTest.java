@@ -0,0 +1,119 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(MySqlTestContainerExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CryptocurrencyBatchWriter.class)
+@Tag("IntegrationTest")
+class CryptocurrencyBatchWriterIntegrationTest {
+
+    @Autowired
+    private CryptocurrencyBatchWriter underTest;
+    @Autowired
+    private CryptocurrencyRepository cryptoRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    void whenInsertCryptocurrencies_thenRowsWithPricesAndGeneratedIdsCreated() {
+        var cryptocurrencies = LongStream.rangeClosed(1, 3)
+                .mapToObj(id -> cryptocurrency("Coin" + id, "C" + id, id))
+                .toList();
+
+        var inserted = underTest.insert(cryptocurrencies);
+        testEntityManager.clear();
+
+        assertThat(inserted).containsExactlyElementsOf(cryptocurrencies);
+        assertThat(cryptocurrencies)
+                .extracting(Cryptocurrency::getId)
+                .doesNotContainNull()
+                .doesNotHaveDuplicates();
+        assertThat(cryptoRepository.findAllWithPrice())
+                .extracting(Cryptocurrency::getId, Cryptocurrency::getName, cryptocurrency -> cryptocurrency.getPrice() != null)
+                .containsExactlyElementsOf(cryptocurrencies.stream()
+                        .map(cryptocurrency -> tuple(cryptocurrency.getId(), cryptocurrency.getName(), true))
+                        .toList());
+    }
+
+    @Test
+    void whenInsertClashesWithRegisteredRow_thenOnlyOtherRowsInserted() {
+        underTest.insert(List.of(cryptocurrency("Bitcoin", "BTC", 1L)));
+        var clashing = cryptocurrency("Bitcoin Two", "BTC", 2L);
+        var ethereum = cryptocurrency("Ethereum", "ETH", 1027L);
+
+        var inserted = underTest.insert(List.of(clashing, ethereum));
+
+        assertThat(inserted).containsExactly(ethereum);
+        assertThat(clashing.getId()).isNull();
+        assertThat(cryptoRepository.findAllWithPrice())
+                .extracting(Cryptocurrency::getName, cryptocurrency -> cryptocurrency.getPrice() != null)
+                .containsExactly(tuple("Bitcoin", true), tuple("Ethereum", true));
+    }
+
+    @Test
+    void whenBatchesOverlap_thenIdenticalRowOfEarlierBatchNotClaimed() {
+        underTest.insert(List.of(cryptocurrency("Bitcoin", "BTC", 1L), cryptocurrency("Ethereum", "ETH", 1027L)));
+        var identical = cryptocurrency("Bitcoin", "BTC", 1L);
+        var polygon = cryptocurrency("Polygon", "MATIC", 3890L);
+
+        var inserted = underTest.insert(List.of(identical, polygon));
+        testEntityManager.clear();
+
+        assertThat(inserted).containsExactly(polygon);
+        assertThat(identical.getId()).isNull();
+        assertThat(cryptoRepository.findAllWithPrice())
+                .extracting(Cryptocurrency::getName, cryptocurrency -> cryptocurrency.getPrice() != null)
+                .containsExactly(tuple("Bitcoin", true), tuple("Ethereum", true), tuple("Polygon", true));
+    }
+
+    @Test
+    void whenFindExistingKeys_thenOnlyRegisteredCandidateKeysReturnedInLowerCase() {
+        underTest.insert(List.of(cryptocurrency("Bitcoin", "BTC", 1L), cryptocurrency("Ethereum", "ETH", 1027L)));
+
+        var existingKeys = underTest.findExistingKeys(List.of("BITCOIN", "Solana"), List.of("btc", "SOL"),
+                List.of(1L, 5426L));
+
+        assertThat(existingKeys.names()).containsExactly("bitcoin");
+        assertThat(existingKeys.symbols()).containsExactly("btc");
+        assertThat(existingKeys.coinMarketIds()).containsExactly(1L);
+    }
+
+    private static Cryptocurrency cryptocurrency(String name, String symbol, Long coinMarketId) {
+        var cryptocurrency = Cryptocurrency.builder()
+                .name(name)
+                .symbol(symbol)
+                .coinMarketId(coinMarketId)
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        cryptocurrency.setPrice(Price.builder()
+                .cryptocurrency(cryptocurrency)
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build());
+        return cryptocurrency;
+    }
+}
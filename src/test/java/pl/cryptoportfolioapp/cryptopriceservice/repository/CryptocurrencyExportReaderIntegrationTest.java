@@ -0,0 +1,70 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(MySqlTestContainerExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CryptocurrencyExportReader.class, CryptocurrencyBatchWriter.class})
+@Tag("IntegrationTest")
+class CryptocurrencyExportReaderIntegrationTest {
+
+    @Autowired
+    private CryptocurrencyExportReader underTest;
+    @Autowired
+    private CryptocurrencyBatchWriter cryptocurrencyBatchWriter;
+
+    @Test
+    void whenForEachWithPrice_thenEveryCryptocurrencyStreamedInIdOrderWithPrice() {
+        var bitcoin = cryptocurrency("Bitcoin", "BTC", 1L);
+        var ethereum = cryptocurrency("Ethereum", "ETH", 1027L);
+        cryptocurrencyBatchWriter.insert(List.of(bitcoin, ethereum));
+
+        var exported = new ArrayList<Cryptocurrency>();
+        underTest.forEachWithPrice(exported::add);
+
+        assertThat(exported)
+                .extracting(Cryptocurrency::getId, Cryptocurrency::getSymbol, Cryptocurrency::getCoinMarketId,
+                        cryptocurrency -> cryptocurrency.getPrice().getCryptocurrency())
+                .containsExactly(
+                        tuple(bitcoin.getId(), "BTC", 1L, exported.get(0)),
+                        tuple(ethereum.getId(), "ETH", 1027L, exported.get(1)));
+        assertThat(exported.get(0).getPrice().getPriceCurrent()).isNull();
+    }
+
+    private static Cryptocurrency cryptocurrency(String name, String symbol, Long coinMarketId) {
+        var cryptocurrency = Cryptocurrency.builder()
+                .name(name)
+                .symbol(symbol)
+                .coinMarketId(coinMarketId)
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        cryptocurrency.setPrice(Price.builder()
+                .cryptocurrency(cryptocurrency)
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build());
+        return cryptocurrency;
+    }
+}
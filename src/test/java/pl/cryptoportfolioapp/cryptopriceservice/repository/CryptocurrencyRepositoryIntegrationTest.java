@@ -9,12 +9,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.Example;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.testcontainers.shaded.org.apache.commons.lang3.RandomUtils;
 import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExtension;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencyCursor;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -23,6 +29,7 @@ import static org.assertj.core.api.Assertions.*;
 @ExtendWith(MySqlTestContainerExtension.class)
 @DataJpaTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "cryptocurrency.repository.in.list.chunk.size=2")
 @Tag("IntegrationTest")
 class CryptocurrencyRepositoryIntegrationTest {
 
@@ -120,4 +127,65 @@ class CryptocurrencyRepositoryIntegrationTest {
                 )
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenFindByNameAndSymbolIgnoringCase_thenCryptocurrenciesWithPricesReturnedAcrossChunks() {
+        var saved = new ArrayList<Cryptocurrency>();
+        for (var i = 0; i < 5; i++)
+            saved.add(underTestRepository.save(cryptocurrencyWithChange24h("Coin" + i, "C" + i, BigDecimal.ONE)));
+
+        var byName = underTestRepository.findByName(List.of("COIN4", "coin0", "Coin2", "coin0", "Missing"));
+        var bySymbol = underTestRepository.findBySymbol(List.of("c3", "C1"));
+
+        assertThat(byName)
+                .extracting(Cryptocurrency::getId, crypto -> crypto.getPrice().getPercentChange24h())
+                .containsExactly(
+                        tuple(saved.get(0).getId(), BigDecimal.ONE),
+                        tuple(saved.get(2).getId(), BigDecimal.ONE),
+                        tuple(saved.get(4).getId(), BigDecimal.ONE));
+        assertThat(bySymbol)
+                .extracting(Cryptocurrency::getId)
+                .containsExactly(saved.get(1).getId(), saved.get(3).getId());
+    }
+
+    @Test
+    void whenFindPagesSortedByPercentChangeDesc_thenEveryCryptocurrencyReturnedOnceInOrder() {
+        var changes = new String[]{"5.5", null, "-1.25", "5.5", null, "0"};
+        var saved = new ArrayList<Cryptocurrency>();
+        for (var i = 0; i < changes.length; i++)
+            saved.add(underTestRepository.save(cryptocurrencyWithChange24h("Coin" + i, "C" + i,
+                    changes[i] != null ? new BigDecimal(changes[i]) : null)));
+        var sort = CryptocurrencySort.parse("percentChange24h,desc");
+
+        var ids = new ArrayList<Long>();
+        CryptocurrencyCursor cursor = null;
+        do {
+            var page = underTestRepository.findPage(sort, cursor, 2);
+            page.forEach(crypto -> ids.add(crypto.getId()));
+            cursor = page.size() < 2 ? null : CryptocurrencyCursor.after(sort, page.get(page.size() - 1));
+        } while (cursor != null);
+
+        assertThat(ids).containsExactly(
+                saved.get(3).getId(),
+                saved.get(0).getId(),
+                saved.get(5).getId(),
+                saved.get(2).getId(),
+                saved.get(4).getId(),
+                saved.get(1).getId());
+    }
+
+    private static Cryptocurrency cryptocurrencyWithChange24h(String name, String symbol, BigDecimal percentChange24h) {
+        var crypto = Cryptocurrency.builder()
+                .name(name)
+                .symbol(symbol)
+                .coinMarketId(RandomUtils.nextLong())
+                .lastUpdate(LocalDateTime.now())
+                .build();
+        crypto.setPrice(Price.builder()
+                .cryptocurrency(crypto)
+                .percentChange24h(percentChange24h)
+                .lastUpdate(LocalDateTime.now())
+                .build());
+        return crypto;
+    }
+}
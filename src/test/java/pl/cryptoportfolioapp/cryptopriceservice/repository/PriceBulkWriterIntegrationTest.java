@@ -0,0 +1,103 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.testcontainers.shaded.org.apache.commons.lang3.RandomUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(MySqlTestContainerExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PriceBulkWriter.class)
+@Tag("IntegrationTest")
+class PriceBulkWriterIntegrationTest {
+
+    @Autowired
+    private PriceBulkWriter underTest;
+    @Autowired
+    private CryptocurrencyRepository cryptoRepository;
+    @Autowired
+    private PriceRepository priceRepository;
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private Cryptocurrency cryptocurrency;
+
+    @BeforeEach
+    void setUp() {
+        cryptocurrency = Cryptocurrency.builder()
+                .name("Bitcoin")
+                .symbol("BTC")
+                .coinMarketId(RandomUtils.nextLong())
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+    }
+
+    @Test
+    void whenWriteExistingPrice_thenRowShouldBeUpdatedInPlace() {
+        cryptocurrency.setPrice(Price.builder()
+                .priceCurrent(new BigDecimal("100.5"))
+                .cryptocurrency(cryptocurrency)
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build());
+        var priceId = cryptoRepository.save(cryptocurrency).getPrice().getId();
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        var refreshed = Price.builder()
+                .id(priceId)
+                .cryptocurrency(cryptocurrency)
+                .priceCurrent(new BigDecimal("200.5"))
+                .percentChange1h(new BigDecimal("-1.5"))
+                .build();
+        underTest.write(List.of(refreshed));
+        testEntityManager.clear();
+
+        assertThat(priceRepository.findAll())
+                .extracting(Price::getId, Price::getPriceCurrent, Price::getPercentChange1h)
+                .containsExactly(tuple(
+                        priceId,
+                        new BigDecimal("200.5").setScale(12, RoundingMode.HALF_UP),
+                        new BigDecimal("-1.5").setScale(12, RoundingMode.HALF_UP)));
+        assertThat(refreshed.getLastUpdate()).isNotNull();
+    }
+
+    @Test
+    void whenWritePriceOfCryptocurrencyWithoutPrice_thenRowShouldBeInserted() {
+        cryptoRepository.save(cryptocurrency);
+        testEntityManager.flush();
+
+        underTest.write(List.of(Price.builder()
+                .cryptocurrency(cryptocurrency)
+                .priceCurrent(new BigDecimal("300.5"))
+                .build()));
+        testEntityManager.clear();
+
+        assertThat(priceRepository.findAll())
+                .extracting(Price::getPriceCurrent)
+                .containsExactly(new BigDecimal("300.5").setScale(12, RoundingMode.HALF_UP));
+    }
+}
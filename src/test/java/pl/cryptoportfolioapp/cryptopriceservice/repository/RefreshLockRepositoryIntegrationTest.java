@@ -0,0 +1,69 @@
+package pl.cryptoportfolioapp.cryptopriceservice.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(MySqlTestContainerExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RefreshLockRepository.class)
+@Tag("IntegrationTest")
+class RefreshLockRepositoryIntegrationTest {
+
+    private static final String LEASE_NAME = "price-refresh";
+
+    @Autowired
+    private RefreshLockRepository underTest;
+
+    @Test
+    void whenLeaseHeld_thenOnlyOwnerAcquiresIt() {
+        assertThat(underTest.tryAcquire(LEASE_NAME, "first", Duration.ofMinutes(1))).isTrue();
+
+        assertThat(underTest.tryAcquire(LEASE_NAME, "second", Duration.ofMinutes(1))).isFalse();
+        assertThat(underTest.tryAcquire(LEASE_NAME, "first", Duration.ofMinutes(1))).isTrue();
+    }
+
+    @Test
+    void whenLeaseExpired_thenAnotherOwnerAcquiresIt() throws InterruptedException {
+        assertThat(underTest.tryAcquire(LEASE_NAME, "first", Duration.ofMillis(50))).isTrue();
+        Thread.sleep(100);
+
+        assertThat(underTest.tryAcquire(LEASE_NAME, "second", Duration.ofMinutes(1))).isTrue();
+        assertThat(underTest.tryAcquire(LEASE_NAME, "first", Duration.ofMinutes(1))).isFalse();
+    }
+
+    @Test
+    void whenLeaseReleased_thenAnotherOwnerAcquiresIt() {
+        assertThat(underTest.tryAcquire(LEASE_NAME, "first", Duration.ofMinutes(1))).isTrue();
+
+        underTest.release(LEASE_NAME, "first");
+
+        assertThat(underTest.tryAcquire(LEASE_NAME, "second", Duration.ofMinutes(1))).isTrue();
+    }
+
+    @Test
+    void whenHolderCompletesLease_thenLeaseNoLongerRunningButStillHeld() {
+        assertThat(underTest.tryAcquire(LEASE_NAME, "first", Duration.ofMinutes(1))).isTrue();
+        assertThat(underTest.isRunning(LEASE_NAME)).isTrue();
+
+        underTest.complete(LEASE_NAME, "first");
+
+        assertThat(underTest.isRunning(LEASE_NAME)).isFalse();
+        assertThat(underTest.tryAcquire(LEASE_NAME, "second", Duration.ofMinutes(1))).isFalse();
+    }
+}
@@ -0,0 +1,163 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.config.AdaptiveRefreshProperties;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class AdaptivePriceRefreshSchedulerUnitTest {
+
+    private static final Instant START = Instant.parse("2023-01-16T09:00:00Z");
+
+    @Mock
+    private CryptocurrencyService cryptocurrencyService;
+
+    @Mock
+    private PriceUpdateService priceUpdateService;
+
+    @Mock
+    private CryptocurrencyPopularityService cryptocurrencyPopularityService;
+
+    @Mock
+    private PriceRefreshGuard priceRefreshGuard;
+
+    @Spy
+    private AdaptiveRefreshProperties properties = new AdaptiveRefreshProperties();
+
+    @InjectMocks
+    private AdaptivePriceRefreshScheduler underTest;
+
+    @Captor
+    private ArgumentCaptor<List<Cryptocurrency>> refreshedCaptor;
+
+    private Cryptocurrency bitcoin;
+    private Cryptocurrency ethereum;
+    private Cryptocurrency dormantCoin;
+
+    @BeforeEach
+    void setUp() {
+        bitcoin = cryptocurrency(1L, "BTC", new BigDecimal("1.5"));
+        ethereum = cryptocurrency(2L, "ETH", new BigDecimal("-0.3"));
+        dormantCoin = cryptocurrency(3L, "DEAD", new BigDecimal("0.01"));
+        lenient().when(cryptocurrencyService.getCryptocurrencies())
+                .thenReturn(List.of(bitcoin, ethereum, dormantCoin));
+        lenient().when(priceUpdateService.updateCryptocurrencyPrices(any()))
+                .thenReturn(Collections.emptyList());
+        lenient().when(priceRefreshGuard.holdAdaptiveLease(any()))
+                .thenReturn(true);
+    }
+
+    @Test
+    void whenAdaptiveLeaseHeldByAnotherInstance_thenNothingRefreshedAndNoCreditsSpent() {
+        when(priceRefreshGuard.holdAdaptiveLease(properties.getLeaseTtl()))
+                .thenReturn(false, true);
+
+        underTest.refreshDueCryptocurrencies(START);
+        underTest.refreshDueCryptocurrencies(START.plus(Duration.ofMinutes(1)));
+
+        verify(priceUpdateService).updateCryptocurrencyPrices(List.of(bitcoin, ethereum, dormantCoin));
+        verify(cryptocurrencyService).getCryptocurrencies();
+    }
+
+    @Test
+    void whenFirstTick_thenEveryCryptocurrencyRefreshedInOneBatch() {
+        underTest.refreshDueCryptocurrencies(START);
+
+        verify(priceUpdateService).updateCryptocurrencyPrices(List.of(bitcoin, ethereum, dormantCoin));
+    }
+
+    @Test
+    void whenTicksPass_thenCryptocurrenciesRefreshedByVolatilityTier() {
+        underTest.refreshDueCryptocurrencies(START);
+        underTest.refreshDueCryptocurrencies(START.plus(Duration.ofMinutes(1)));
+        underTest.refreshDueCryptocurrencies(START.plus(Duration.ofMinutes(2)));
+        underTest.refreshDueCryptocurrencies(START.plus(Duration.ofMinutes(5)));
+
+        verify(priceUpdateService, times(4)).updateCryptocurrencyPrices(refreshedCaptor.capture());
+        assertThat(refreshedCaptor.getAllValues())
+                .containsExactly(
+                        List.of(bitcoin, ethereum, dormantCoin),
+                        List.of(bitcoin),
+                        List.of(bitcoin),
+                        List.of(bitcoin, ethereum));
+    }
+
+    @Test
+    void whenCryptocurrencyPopular_thenRefreshedOneTierFaster() {
+        when(cryptocurrencyPopularityService.getRequestCount(anyLong()))
+                .thenAnswer(invocation -> invocation.getArgument(0).equals(3L) ? 20L : 0L);
+
+        assertThat(underTest.getTier(3L, dormantCoin.getPrice())).isEqualTo(RefreshTier.SLOW);
+        assertThat(underTest.getTier(2L, ethereum.getPrice())).isEqualTo(RefreshTier.NORMAL);
+        assertThat(underTest.getTier(4L, null)).isEqualTo(RefreshTier.NORMAL);
+    }
+
+    @Test
+    void whenBudgetExhausted_thenMostOverdueRefreshedFirstOnNextTicks() {
+        properties.setCreditsPerMinute(1);
+        properties.setIdsPerCredit(2);
+
+        underTest.refreshDueCryptocurrencies(START);
+        underTest.refreshDueCryptocurrencies(START.plus(Duration.ofSeconds(30)));
+        underTest.refreshDueCryptocurrencies(START.plus(Duration.ofMinutes(1)));
+
+        verify(priceUpdateService, times(2)).updateCryptocurrencyPrices(refreshedCaptor.capture());
+        assertThat(refreshedCaptor.getAllValues())
+                .containsExactly(
+                        List.of(bitcoin, ethereum),
+                        List.of(dormantCoin, bitcoin));
+    }
+
+    @Test
+    void whenRefreshFails_thenCryptocurrenciesStayDue() {
+        when(priceUpdateService.updateCryptocurrencyPrices(any()))
+                .thenThrow(new IllegalStateException("upstream down"))
+                .thenReturn(Collections.emptyList());
+
+        underTest.refreshDueCryptocurrencies(START);
+        underTest.refreshDueCryptocurrencies(START.plus(Duration.ofSeconds(10)));
+
+        verify(priceUpdateService, times(2)).updateCryptocurrencyPrices(List.of(bitcoin, ethereum, dormantCoin));
+    }
+
+    private static Cryptocurrency cryptocurrency(Long id, String symbol, BigDecimal percentChange1h) {
+        var cryptocurrency = Cryptocurrency.builder()
+                .id(id)
+                .name(symbol)
+                .symbol(symbol)
+                .coinMarketId(id)
+                .build();
+        cryptocurrency.setPrice(Price.builder()
+                .id(id)
+                .cryptocurrency(cryptocurrency)
+                .priceCurrent(BigDecimal.ONE)
+                .percentChange1h(percentChange1h)
+                .build());
+        return cryptocurrency;
+    }
+}
@@ -0,0 +1,188 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.InvalidCandleRangeException;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CandleInterval;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.model.PriceCandle;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceCandleRepository;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceCandleWriter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class CandleServiceUnitTest {
+
+    @Mock
+    private PriceCandleRepository priceCandleRepository;
+
+    @Mock
+    private PriceCandleWriter priceCandleWriter;
+
+    @InjectMocks
+    private CandleService underTest;
+
+    private Cryptocurrency bitcoin;
+
+    @BeforeEach
+    void setUp() {
+        bitcoin = Cryptocurrency.builder()
+                .id(1L)
+                .name("Bitcoin")
+                .symbol("BTC")
+                .coinMarketId(1L)
+                .build();
+    }
+
+    @Test
+    void whenTicksOfNextMinuteArrive_thenClosedMinuteCandleFlushedWithOhlc() {
+        underTest.aggregate(List.of(tick("100", LocalDateTime.of(2022, 1, 1, 10, 0, 5))));
+        underTest.aggregate(List.of(tick("120", LocalDateTime.of(2022, 1, 1, 10, 0, 20))));
+        underTest.aggregate(List.of(tick("90", LocalDateTime.of(2022, 1, 1, 10, 0, 40))));
+        underTest.aggregate(List.of(tick("110", LocalDateTime.of(2022, 1, 1, 10, 0, 55))));
+        underTest.aggregate(List.of(tick("115", LocalDateTime.of(2022, 1, 1, 10, 1, 5))));
+
+        var closedCandles = captureWrittenCandles();
+        assertThat(closedCandles)
+                .extracting(PriceCandle::getInterval, PriceCandle::getOpenTime, PriceCandle::getPriceOpen,
+                        PriceCandle::getPriceHigh, PriceCandle::getPriceLow, PriceCandle::getPriceClose,
+                        PriceCandle::getTicks)
+                .containsExactly(tuple(CandleInterval.ONE_MINUTE, LocalDateTime.of(2022, 1, 1, 10, 0),
+                        new BigDecimal("100"), new BigDecimal("120"), new BigDecimal("90"),
+                        new BigDecimal("110"), 4));
+    }
+
+    @Test
+    void whenFlushAfterBucketsEnd_thenOnlyClosedIntervalsFlushed() {
+        underTest.aggregate(List.of(tick("100", LocalDateTime.of(2022, 1, 1, 10, 2, 5))));
+        clearInvocations(priceCandleWriter);
+
+        underTest.flushClosedCandles(LocalDateTime.of(2022, 1, 1, 10, 5));
+
+        assertThat(captureWrittenCandles())
+                .extracting(PriceCandle::getInterval)
+                .containsExactlyInAnyOrder(CandleInterval.ONE_MINUTE, CandleInterval.FIVE_MINUTES);
+    }
+
+    @Test
+    void whenLateTickOfClosedBucket_thenTickSkipped() {
+        underTest.aggregate(List.of(tick("100", LocalDateTime.of(2022, 1, 1, 10, 1, 5))));
+        underTest.aggregate(List.of(tick("50", LocalDateTime.of(2022, 1, 1, 10, 0, 55))));
+        underTest.aggregate(List.of(tick("101", LocalDateTime.of(2022, 1, 1, 10, 2, 5))));
+
+        assertThat(captureWrittenCandles())
+                .extracting(PriceCandle::getOpenTime, PriceCandle::getPriceLow, PriceCandle::getTicks)
+                .containsExactly(tuple(LocalDateTime.of(2022, 1, 1, 10, 1), new BigDecimal("100"), 1));
+    }
+
+    @Test
+    void whenGetCandles_thenFromAlignedToIntervalBucket() {
+        underTest.getCandles(1L, CandleInterval.ONE_HOUR,
+                LocalDateTime.of(2022, 1, 1, 10, 30), LocalDateTime.of(2022, 1, 1, 12, 0));
+
+        verify(priceCandleRepository).findByCryptocurrencyIdAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                1L, CandleInterval.ONE_HOUR, LocalDateTime.of(2022, 1, 1, 10, 0), LocalDateTime.of(2022, 1, 1, 12, 0));
+    }
+
+    @Test
+    void whenGetCandlesOfInvertedRange_thenThrowInvalidCandleRangeException() {
+        assertThatThrownBy(() -> underTest.getCandles(1L, CandleInterval.ONE_HOUR,
+                LocalDateTime.of(2022, 1, 1, 12, 0), LocalDateTime.of(2022, 1, 1, 10, 0)))
+                .isInstanceOf(InvalidCandleRangeException.class);
+        verifyNoInteractions(priceCandleRepository);
+    }
+
+    @Test
+    void whenGetCandlesOfRangeAboveMaxCount_thenThrowInvalidCandleRangeException() {
+        assertThatThrownBy(() -> underTest.getCandles(1L, CandleInterval.FIVE_MINUTES,
+                LocalDateTime.of(2020, 1, 1, 0, 0), LocalDateTime.of(2022, 1, 1, 0, 0)))
+                .isInstanceOf(InvalidCandleRangeException.class);
+        verifyNoInteractions(priceCandleRepository);
+    }
+
+    @Test
+    void whenGetCandlesOfRangeAtMaxCount_thenRepositoryQueried() {
+        underTest.getCandles(1L, CandleInterval.ONE_MINUTE,
+                LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2022, 1, 1, 16, 40));
+
+        verify(priceCandleRepository).findByCryptocurrencyIdAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                1L, CandleInterval.ONE_MINUTE, LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2022, 1, 1, 16, 40));
+    }
+
+    @Test
+    void whenGetCandlesOfRangeWithOpenCandle_thenOpenCandleAppendedToClosedCandles() {
+        var closedCandle = PriceCandle.builder()
+                .cryptocurrencyId(1L)
+                .interval(CandleInterval.ONE_DAY)
+                .openTime(LocalDateTime.of(2022, 1, 1, 0, 0))
+                .priceOpen(new BigDecimal("90"))
+                .priceHigh(new BigDecimal("100"))
+                .priceLow(new BigDecimal("80"))
+                .priceClose(new BigDecimal("95"))
+                .ticks(10)
+                .build();
+        when(priceCandleRepository.findByCryptocurrencyIdAndIntervalAndOpenTimeBetweenOrderByOpenTimeAsc(
+                1L, CandleInterval.ONE_DAY, LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2022, 1, 2, 12, 0)))
+                .thenReturn(List.of(closedCandle));
+        underTest.aggregate(List.of(tick("100", LocalDateTime.of(2022, 1, 2, 10, 0))));
+        underTest.aggregate(List.of(tick("120", LocalDateTime.of(2022, 1, 2, 11, 0))));
+
+        var candles = underTest.getCandles(1L, CandleInterval.ONE_DAY,
+                LocalDateTime.of(2022, 1, 1, 6, 0), LocalDateTime.of(2022, 1, 2, 12, 0));
+
+        assertThat(candles)
+                .extracting(PriceCandle::getOpenTime, PriceCandle::getPriceOpen, PriceCandle::getPriceClose,
+                        PriceCandle::getTicks)
+                .containsExactly(
+                        tuple(LocalDateTime.of(2022, 1, 1, 0, 0), new BigDecimal("90"), new BigDecimal("95"), 10),
+                        tuple(LocalDateTime.of(2022, 1, 2, 0, 0), new BigDecimal("100"), new BigDecimal("120"), 2));
+    }
+
+    @Test
+    void whenGetCandlesOfRangeBeforeOpenCandle_thenOnlyClosedCandlesReturned() {
+        underTest.aggregate(List.of(tick("100", LocalDateTime.of(2022, 1, 2, 10, 0))));
+
+        var candles = underTest.getCandles(1L, CandleInterval.ONE_DAY,
+                LocalDateTime.of(2021, 12, 1, 0, 0), LocalDateTime.of(2021, 12, 31, 0, 0));
+
+        assertThat(candles).isEmpty();
+    }
+
+    private Price tick(String priceCurrent, LocalDateTime lastUpdate) {
+        return Price.builder()
+                .id(1L)
+                .cryptocurrency(bitcoin)
+                .priceCurrent(new BigDecimal(priceCurrent))
+                .lastUpdate(lastUpdate)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PriceCandle> captureWrittenCandles() {
+        ArgumentCaptor<Collection<PriceCandle>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(priceCandleWriter, atLeastOnce()).write(captor.capture());
+        return captor.getAllValues().stream()
+                .flatMap(Collection::stream)
+                .toList();
+    }
+}
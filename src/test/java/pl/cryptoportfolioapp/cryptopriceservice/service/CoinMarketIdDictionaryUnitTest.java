@@ -0,0 +1,83 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.MapDataDTO;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class CoinMarketIdDictionaryUnitTest {
+
+    @Mock
+    private MarketApiClientService marketApiClientService;
+
+    @InjectMocks
+    private CoinMarketIdDictionary underTest;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(underTest, "enabled", true);
+        ReflectionTestUtils.setField(underTest, "pageSize", 2);
+        when(marketApiClientService.fetchCryptocurrencyMapPage(1, 2))
+                .thenReturn(Mono.just(page(entry(1027L, "Ethereum", "ETH"), entry(1L, "Bitcoin", "BTC"))));
+        when(marketApiClientService.fetchCryptocurrencyMapPage(3, 2))
+                .thenReturn(Mono.just(page(entry(9000L, "Ethereum Fork", "ETH"))));
+    }
+
+    @Test
+    void whenRefreshed_thenEveryPageLoaded() {
+        underTest.scheduledRefresh();
+
+        assertThat(underTest.size()).isEqualTo(3);
+        assertThat(underTest.findCoinMarketId("btc", "Bitcoin")).contains(1L);
+        assertThat(underTest.findCoinMarketId("DOGE", "Dogecoin")).isEmpty();
+        verify(marketApiClientService, times(2)).fetchCryptocurrencyMapPage(anyInt(), eq(2));
+    }
+
+    @Test
+    void whenSymbolShared_thenMatchingNameOrLowestIdWins() {
+        underTest.scheduledRefresh();
+
+        assertThat(underTest.findCoinMarketId("ETH", "ethereum fork")).contains(9000L);
+        assertThat(underTest.findCoinMarketId("ETH", "Ether")).contains(1027L);
+    }
+
+    @Test
+    void whenDownloadFails_thenPreviousEntriesKept() {
+        underTest.scheduledRefresh();
+        when(marketApiClientService.fetchCryptocurrencyMapPage(1, 2))
+                .thenReturn(Mono.error(new IllegalStateException("upstream down")));
+
+        underTest.scheduledRefresh();
+
+        assertThat(underTest.findCoinMarketId("BTC", null)).isEqualTo(Optional.of(1L));
+    }
+
+    private static MapDataDTO page(CryptocurrencyMapDTO... entries) {
+        return new MapDataDTO().setData(List.of(entries));
+    }
+
+    private static CryptocurrencyMapDTO entry(Long coinMarketId, String name, String symbol) {
+        return new CryptocurrencyMapDTO()
+                .setCoinMarketId(coinMarketId)
+                .setName(name)
+                .setSymbol(symbol);
+    }
+}
@@ -0,0 +1,249 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.MapDataDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyBatchResultDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.controller.CryptocurrencyPostDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.CryptocurrencyBatchTooLargeException;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.MarketApiClientException;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyBatchWriter;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class CryptocurrencyBatchRegistrationServiceUnitTest {
+
+    @Mock
+    private CryptocurrencyBatchWriter cryptocurrencyBatchWriter;
+
+    @Mock
+    private MarketApiClientService marketApiClientService;
+
+    @Mock
+    private CoinMarketIdDictionary coinMarketIdDictionary;
+
+    @Mock
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    @Captor
+    private ArgumentCaptor<List<Cryptocurrency>> insertedCaptor;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @InjectMocks
+    private CryptocurrencyBatchRegistrationService underTest;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(coinMarketIdDictionary.findCoinMarketId(anyString(), anyString()))
+                .thenReturn(Optional.empty());
+        lenient().when(cryptocurrencyBatchWriter.findExistingKeys(any(), any(), any()))
+                .thenReturn(new CryptocurrencyBatchWriter.ExistingKeys(Set.of("bitcoin"), Set.of("btc"), Set.of(1L)));
+        lenient().doAnswer(invocation -> {
+            List<Cryptocurrency> cryptocurrencies = invocation.getArgument(0);
+            var id = 10L;
+            for (var cryptocurrency : cryptocurrencies)
+                cryptocurrency.setId(id++);
+            return cryptocurrencies;
+        }).when(cryptocurrencyBatchWriter).insert(any());
+    }
+
+    @Test
+    void whenEntriesValid_thenMissingIdsResolvedInOneMapCallAndInsertedInOneBatch() {
+        when(coinMarketIdDictionary.findCoinMarketId("MATIC", "Polygon"))
+                .thenReturn(Optional.of(3890L));
+        when(marketApiClientService.fetchCryptoMarketIdsBySymbols(List.of("ETH", "SOL")))
+                .thenReturn(Mono.just(new MapDataDTO().setData(List.of(
+                        mapEntry(1027L, "Ethereum", "ETH"),
+                        mapEntry(5426L, "Solana", "SOL")))));
+
+        var results = underTest.registerCryptocurrencies(List.of(
+                postDto("Ethereum", "eth", null),
+                postDto("Polygon", "MATIC", null),
+                postDto("Solana", "SOL", null),
+                postDto("Cardano", "ADA", 2010L)));
+
+        assertThat(results)
+                .extracting(CryptocurrencyBatchResultDTO::getIndex, CryptocurrencyBatchResultDTO::getStatus,
+                        result -> result.getCryptocurrencyDTO().getCoinMarketId())
+                .containsExactly(
+                        tuple(0, 201, 1027L),
+                        tuple(1, 201, 3890L),
+                        tuple(2, 201, 5426L),
+                        tuple(3, 201, 2010L));
+        assertThat(results.get(0).getCryptocurrencyDTO().getId()).isEqualTo(10L);
+        verify(marketApiClientService).fetchCryptoMarketIdsBySymbols(any());
+        verify(cryptocurrencyBatchWriter).insert(any());
+        verify(cryptocurrencySnapshotService).publish();
+    }
+
+    @Test
+    void whenSomeEntriesFail_thenOthersStillRegistered() {
+        when(marketApiClientService.fetchCryptoMarketIdsBySymbols(List.of("XYZ")))
+                .thenReturn(Mono.just(new MapDataDTO()));
+
+        var results = underTest.registerCryptocurrencies(List.of(
+                postDto("Ethereum", "ETH", 1027L),
+                postDto("B", "BTC", 1L),
+                postDto("Bitcoin", "XBT", 9999L),
+                postDto("Ether", "ETH", 1028L),
+                postDto("Unknown", "XYZ", null)));
+
+        assertThat(results)
+                .extracting(CryptocurrencyBatchResultDTO::getIndex, CryptocurrencyBatchResultDTO::getStatus)
+                .containsExactly(
+                        tuple(0, 201),
+                        tuple(1, 400),
+                        tuple(2, 409),
+                        tuple(3, 409),
+                        tuple(4, 404));
+        assertThat(results.get(1).getErrors()).containsExactly("Name length exceeds range [2,100]");
+        assertThat(results.get(2).getErrors()).containsExactly("Cryptocurrency name already exists: Bitcoin");
+        assertThat(results.get(3).getErrors()).containsExactly("Cryptocurrency symbol already exists: ETH");
+        assertThat(results.get(4).getErrors()).containsExactly("Coin market ID not found for symbol: XYZ");
+        verify(cryptocurrencyBatchWriter).insert(insertedCaptor.capture());
+        assertThat(insertedCaptor.getValue())
+                .extracting(Cryptocurrency::getName)
+                .containsExactly("Ethereum");
+    }
+
+    @Test
+    void whenMapCallFailsOrInsertFails_thenAffectedEntriesReported() {
+        when(marketApiClientService.fetchCryptoMarketIdsBySymbols(any()))
+                .thenReturn(Mono.error(new IllegalStateException("upstream down")));
+        doThrow(new DataAccessResourceFailureException("Connection refused"))
+                .when(cryptocurrencyBatchWriter).insert(any());
+
+        var results = underTest.registerCryptocurrencies(List.of(
+                postDto("Ethereum", "ETH", null),
+                postDto("Cardano", "ADA", 2010L)));
+
+        assertThat(results)
+                .extracting(CryptocurrencyBatchResultDTO::getStatus)
+                .containsExactly(502, 503);
+        verifyNoInteractions(cryptocurrencySnapshotService);
+    }
+
+    @Test
+    void whenMapCallRejectsInvalidSymbols_thenTheyAreNotFoundAndOthersResolved() {
+        when(marketApiClientService.fetchCryptoMarketIdsBySymbols(List.of("ETH", "XYZ1", "SOL")))
+                .thenReturn(Mono.error(new MarketApiClientException(HttpStatus.BAD_REQUEST,
+                        "Error during calling get request", "Invalid value for \"symbol\": \"XYZ1\"")));
+        when(marketApiClientService.fetchCryptoMarketIdsBySymbols(List.of("ETH", "SOL")))
+                .thenReturn(Mono.just(new MapDataDTO().setData(List.of(
+                        mapEntry(1027L, "Ethereum", "ETH"),
+                        mapEntry(5426L, "Solana", "SOL")))));
+
+        var results = underTest.registerCryptocurrencies(List.of(
+                postDto("Ethereum", "ETH", null),
+                postDto("Unknown", "XYZ1", null),
+                postDto("Solana", "SOL", null)));
+
+        assertThat(results)
+                .extracting(CryptocurrencyBatchResultDTO::getStatus)
+                .containsExactly(201, 404, 201);
+    }
+
+    @Test
+    void whenMapCallRejectsWithoutNamingSymbols_thenSymbolsBisected() {
+        var invalidSymbol = new MarketApiClientException(HttpStatus.BAD_REQUEST,
+                "Error during calling get request", "Invalid value for \"symbol\"");
+        when(marketApiClientService.fetchCryptoMarketIdsBySymbols(any()))
+                .thenAnswer(invocation -> {
+                    List<String> symbols = invocation.getArgument(0);
+                    if (symbols.contains("XYZ1"))
+                        return Mono.error(invalidSymbol);
+                    return Mono.just(new MapDataDTO().setData(symbols.stream()
+                            .map(symbol -> mapEntry((long) symbol.hashCode(), symbol, symbol))
+                            .toList()));
+                });
+
+        var results = underTest.registerCryptocurrencies(List.of(
+                postDto("ETH", "ETH", null),
+                postDto("XYZ1", "XYZ1", null),
+                postDto("SOL", "SOL", null),
+                postDto("DOT", "DOT", null)));
+
+        assertThat(results)
+                .extracting(CryptocurrencyBatchResultDTO::getStatus)
+                .containsExactly(201, 404, 201, 201);
+    }
+
+    @Test
+    void whenRowClashesWithConcurrentRegistration_thenOnlyThatEntryConflicts() {
+        doAnswer(invocation -> {
+            List<Cryptocurrency> cryptocurrencies = invocation.getArgument(0);
+            cryptocurrencies.get(1).setId(11L);
+            return List.of(cryptocurrencies.get(1));
+        }).when(cryptocurrencyBatchWriter).insert(any());
+
+        var results = underTest.registerCryptocurrencies(List.of(
+                postDto("Ethereum", "ETH", 1027L),
+                postDto("Cardano", "ADA", 2010L)));
+
+        assertThat(results)
+                .extracting(CryptocurrencyBatchResultDTO::getIndex, CryptocurrencyBatchResultDTO::getStatus)
+                .containsExactly(tuple(0, 409), tuple(1, 201));
+        assertThat(results.get(0).getErrors())
+                .containsExactly("Cryptocurrency was registered concurrently: Ethereum");
+        verify(cryptocurrencySnapshotService).publish();
+    }
+
+    @Test
+    void whenBatchTooLarge_thenThrowCryptocurrencyBatchTooLargeExc() {
+        ReflectionTestUtils.setField(underTest, "maxBatchSize", 2);
+        var cryptocurrencyPostDTOS = new ArrayList<CryptocurrencyPostDTO>();
+        for (var i = 0; i < 3; i++)
+            cryptocurrencyPostDTOS.add(postDto("Coin" + i, "C" + i, (long) i + 100));
+
+        assertThatThrownBy(() -> underTest.registerCryptocurrencies(cryptocurrencyPostDTOS))
+                .isInstanceOf(CryptocurrencyBatchTooLargeException.class)
+                .hasMessage("Batch of 3 cryptocurrencies exceeds the limit of 2");
+    }
+
+    private static CryptocurrencyPostDTO postDto(String name, String symbol, Long coinMarketId) {
+        return new CryptocurrencyPostDTO()
+                .setName(name)
+                .setSymbol(symbol)
+                .setCoinMarketId(coinMarketId);
+    }
+
+    private static CryptocurrencyMapDTO mapEntry(Long coinMarketId, String name, String symbol) {
+        return new CryptocurrencyMapDTO()
+                .setCoinMarketId(coinMarketId)
+                .setName(name)
+                .setSymbol(symbol);
+    }
+}
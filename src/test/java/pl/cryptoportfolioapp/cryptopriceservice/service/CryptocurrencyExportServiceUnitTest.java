@@ -0,0 +1,97 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyExportReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class CryptocurrencyExportServiceUnitTest {
+
+    @Mock
+    private CryptocurrencyExportReader cryptocurrencyExportReader;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @InjectMocks
+    private CryptocurrencyExportService underTest;
+
+    @Test
+    void whenExportNdjson_thenOneJsonObjectPerLineWritten() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Cryptocurrency> action = invocation.getArgument(0);
+            action.accept(cryptocurrency(1L, "Bitcoin", new BigDecimal("20000.5")));
+            action.accept(cryptocurrency(2L, "Ethereum", null));
+            return null;
+        }).when(cryptocurrencyExportReader).forEachWithPrice(any());
+        var outputStream = new ByteArrayOutputStream();
+
+        underTest.exportNdjson(outputStream);
+
+        var lines = outputStream.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[2]).isEmpty();
+        assertThat(objectMapper.readTree(lines[0]).get("name").asText()).isEqualTo("Bitcoin");
+        assertThat(objectMapper.readTree(lines[0]).at("/price/priceCurrent").decimalValue())
+                .isEqualByComparingTo("20000.5");
+        assertThat(objectMapper.readTree(lines[1]).get("id").asLong()).isEqualTo(2L);
+        assertThat(objectMapper.readTree(lines[1]).get("price").isNull()).isTrue();
+    }
+
+    @Test
+    void whenClientDisconnects_thenExportStopsWithIOException() {
+        doAnswer(invocation -> {
+            Consumer<Cryptocurrency> action = invocation.getArgument(0);
+            action.accept(cryptocurrency(1L, "Bitcoin", BigDecimal.ONE));
+            return null;
+        }).when(cryptocurrencyExportReader).forEachWithPrice(any());
+        var outputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThatThrownBy(() -> underTest.exportNdjson(outputStream))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Broken pipe");
+    }
+
+    private static Cryptocurrency cryptocurrency(Long id, String name, BigDecimal priceCurrent) {
+        var cryptocurrency = Cryptocurrency.builder()
+                .id(id)
+                .name(name)
+                .build();
+        if (priceCurrent != null)
+            cryptocurrency.setPrice(Price.builder()
+                    .cryptocurrency(cryptocurrency)
+                    .priceCurrent(priceCurrent)
+                    .build());
+        return cryptocurrency;
+    }
+}
@@ -0,0 +1,115 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.exception.InvalidPageRequestException;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencyCursor;
+import pl.cryptoportfolioapp.cryptopriceservice.model.CryptocurrencySort;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class CryptocurrencyPageServiceUnitTest {
+
+    @Mock
+    private CryptocurrencyRepository cryptocurrencyRepository;
+
+    @InjectMocks
+    private CryptocurrencyPageService underTest;
+
+    @Test
+    void whenMoreRowsThanLimit_thenPageTrimmedAndCursorPointsAtLastOne() {
+        var sort = CryptocurrencySort.parse("percentChange24h,desc");
+        when(cryptocurrencyRepository.findPage(sort, null, 3))
+                .thenReturn(List.of(
+                        cryptocurrency(7L, "3.5"),
+                        cryptocurrency(2L, "1.25"),
+                        cryptocurrency(9L, null)));
+
+        var page = underTest.getPage(2, sort, null, null);
+
+        assertThat(page.cryptocurrencies())
+                .extracting(Cryptocurrency::getId)
+                .containsExactly(7L, 2L);
+        assertThat(CryptocurrencyCursor.decode(page.next().encode()))
+                .isEqualTo(new CryptocurrencyCursor(sort, new BigDecimal("1.25"), 2L));
+    }
+
+    @Test
+    void whenCursorGiven_thenPageContinuesWithCursorSortAndLastPageHasNoCursor() {
+        var sort = CryptocurrencySort.parse("priceCurrent");
+        var cursor = new CryptocurrencyCursor(sort, null, 4L);
+        when(cryptocurrencyRepository.findPage(sort, cursor, 11))
+                .thenReturn(List.of(cryptocurrency(5L, "1")));
+
+        var page = underTest.getPage(10, null, null, cursor.encode());
+
+        assertThat(page.cryptocurrencies())
+                .extracting(Cryptocurrency::getId)
+                .containsExactly(5L);
+        assertThat(page.next()).isNull();
+    }
+
+    @Test
+    void whenAfterIdGiven_thenPageStartsAfterIdAndLimitCapped() {
+        when(cryptocurrencyRepository.findPage(any(), any(), anyInt()))
+                .thenReturn(List.of());
+
+        underTest.getPage(10_000, null, 100L, null);
+
+        verify(cryptocurrencyRepository).findPage(CryptocurrencySort.BY_ID,
+                new CryptocurrencyCursor(CryptocurrencySort.BY_ID, null, 100L), 501);
+    }
+
+    @Test
+    void whenPageRequestInvalid_thenThrowInvalidPageRequestExc() {
+        var sort = CryptocurrencySort.parse("priceCurrent,desc");
+
+        assertThatThrownBy(() -> underTest.getPage(0, null, null, null))
+                .isInstanceOf(InvalidPageRequestException.class)
+                .hasMessage("Limit must be positive, was: 0");
+        assertThatThrownBy(() -> underTest.getPage(10, sort, 100L, null))
+                .isInstanceOf(InvalidPageRequestException.class)
+                .hasMessage("Parameter after requires sort by id, was: priceCurrent,desc");
+        assertThatThrownBy(() -> underTest.getPage(10, null, null, "not-a-cursor"))
+                .isInstanceOf(InvalidPageRequestException.class)
+                .hasMessage("Invalid cursor: not-a-cursor");
+        assertThatThrownBy(() -> underTest.getPage(10, CryptocurrencySort.BY_ID, null,
+                new CryptocurrencyCursor(sort, BigDecimal.ONE, 1L).encode()))
+                .isInstanceOf(InvalidPageRequestException.class)
+                .hasMessage("Sort id,asc does not match the cursor sort priceCurrent,desc");
+        verifyNoInteractions(cryptocurrencyRepository);
+    }
+
+    private static Cryptocurrency cryptocurrency(Long id, String percentChange24h) {
+        var cryptocurrency = Cryptocurrency.builder()
+                .id(id)
+                .build();
+        cryptocurrency.setPrice(Price.builder()
+                .cryptocurrency(cryptocurrency)
+                .priceCurrent(BigDecimal.ONE)
+                .percentChange24h(percentChange24h != null ? new BigDecimal(percentChange24h) : null)
+                .build());
+        return cryptocurrency;
+    }
+}
@@ -12,6 +12,7 @@ import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.MapDataDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.exception.CryptocurrencyNotFoundException;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
 import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
 
 import java.time.LocalDateTime;
@@ -21,6 +22,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +35,18 @@ class CryptocurrencyServiceUnitTest {
     @Mock
     private MarketApiClientService marketApiClientService;
 
+    @Mock
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    @Mock
+    private CoinMarketIdDictionary coinMarketIdDictionary;
+
+    @Mock
+    private PriceChangeDetector priceChangeDetector;
+
+    @Mock
+    private PriceCheckTracker priceCheckTracker;
+
     @InjectMocks
     private CryptocurrencyService underTestService;
 
@@ -81,6 +95,20 @@ class CryptocurrencyServiceUnitTest {
                 );
     }
 
+    @Test
+    void whenAddCryptoCurrencyWithoutMarketIdKnownToDictionary_thenNoUpstreamCall() {
+        when(coinMarketIdDictionary.findCoinMarketId("BTC", "Bitcoin"))
+                .thenReturn(Optional.of(1L));
+        when(cryptocurrencyRepository.save(cryptocurrency))
+                .thenReturn(cryptocurrency);
+        cryptocurrency.setCoinMarketId(null);
+
+        var expected = underTestService.addCryptocurrency(cryptocurrency);
+
+        assertThat(expected.getCoinMarketId()).isEqualTo(1L);
+        verifyNoInteractions(marketApiClientService);
+    }
+
     @Test
     void whenAddCryptoCurrencyWithoutMarketId_thenReturnEntity() {
         when(marketApiClientService.getCryptoMarketIdBySymbol("BTC"))
@@ -109,6 +137,21 @@ class CryptocurrencyServiceUnitTest {
                 );
     }
 
+    @Test
+    void whenAddCryptoCurrencyWithoutMarketIdAndSymbolShared_thenUpstreamEntryWithMatchingNameUsed() {
+        when(marketApiClientService.getCryptoMarketIdBySymbol("BTC"))
+                .thenReturn(Optional.of(new MapDataDTO().setData(List.of(
+                        new CryptocurrencyMapDTO().setName("Bitcoin Token").setSymbol("BTC").setCoinMarketId(1L),
+                        new CryptocurrencyMapDTO().setName("Bitcoin").setSymbol("BTC").setCoinMarketId(5L)))));
+        when(cryptocurrencyRepository.save(cryptocurrency))
+                .thenReturn(cryptocurrency);
+        cryptocurrency.setCoinMarketId(null);
+
+        var expected = underTestService.addCryptocurrency(cryptocurrency);
+
+        assertThat(expected.getCoinMarketId()).isEqualTo(5L);
+    }
+
     @Test
     void whenGetAllCryptocurrencies_thenReturnListCryptocurrencies() {
         when(cryptocurrencyRepository.findAll())
@@ -203,10 +246,16 @@ class CryptocurrencyServiceUnitTest {
     @Test
     void whenDeleteCryptocurrencyById_thenDeleteByIdRepositoryMethodPerform() {
         var id = 1L;
+        cryptocurrency.setPrice(Price.builder().id(7L).build());
+        when(cryptocurrencyRepository.findById(id))
+                .thenReturn(Optional.of(cryptocurrency));
 
         underTestService.deleteCryptocurrency(id);
 
         verify(cryptocurrencyRepository).deleteById(id);
+        verify(priceChangeDetector).forget(7L);
+        verify(priceCheckTracker).forget(id);
+        verify(cryptocurrencySnapshotService).publish();
     }
 
     @Test
@@ -245,4 +294,14 @@ class CryptocurrencyServiceUnitTest {
                 .isInstanceOf(CryptocurrencyNotFoundException.class)
                 .hasMessage("Unable to find cryptocurrency with name: " + cryptoName);
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenGetCryptocurrencyBySymbol_thenReturnCryptocurrenciesFromRepository() {
+        when(cryptocurrencyRepository.findBySymbol(List.of("btc")))
+                .thenReturn(List.of(cryptocurrency));
+
+        var expected = underTestService.getBySymbol(List.of("btc"));
+
+        assertThat(expected).containsExactly(cryptocurrency);
+    }
+}
@@ -0,0 +1,152 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class CryptocurrencySnapshotServiceUnitTest {
+
+    @Mock
+    private CryptocurrencyRepository cryptocurrencyRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private CryptocurrencySnapshotService underTest;
+
+    @Test
+    void whenNothingPublished_thenSnapshotEmpty() {
+        assertThat(underTest.getSnapshot().cryptocurrencies()).isEmpty();
+        verifyNoInteractions(cryptocurrencyRepository);
+    }
+
+    @Test
+    void whenPublish_thenSnapshotServesCryptocurrenciesWithoutRepository() {
+        when(cryptocurrencyRepository.findAllWithPrice())
+                .thenReturn(List.of(cryptocurrency(1L, "Bitcoin", "BTC"), cryptocurrency(2L, "Ethereum", "ETH")));
+
+        underTest.publish();
+        var snapshot = underTest.getSnapshot();
+
+        assertThat(snapshot.cryptocurrencies())
+                .extracting(CryptocurrencyDTO::getId)
+                .containsExactly(1L, 2L);
+        assertThat(snapshot.getById(2L))
+                .hasValueSatisfying(cryptocurrencyDTO -> assertThat(cryptocurrencyDTO.getPriceDTO().getPriceCurrent())
+                        .isEqualByComparingTo("10.5"));
+        assertThat(snapshot.getById(3L)).isEmpty();
+        assertThat(snapshot.getByName(List.of("ethereum", "Polygon")))
+                .extracting(CryptocurrencyDTO::getSymbol)
+                .containsExactly("ETH");
+        assertThat(new String(snapshot.getPayloadById(1L).orElseThrow().json()))
+                .contains("\"name\":\"Bitcoin\"");
+        verify(cryptocurrencyRepository, times(1)).findAllWithPrice();
+    }
+
+    @Test
+    void whenDefaultLocaleTurkish_thenSymbolMatchedIgnoringCase() {
+        when(cryptocurrencyRepository.findAllWithPrice())
+                .thenReturn(List.of(cryptocurrency(1L, "Internet Computer", "ICP")));
+        var defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            underTest.publish();
+
+            assertThat(underTest.getSnapshot().getBySymbol(List.of("icp")))
+                    .extracting(CryptocurrencyDTO::getId)
+                    .containsExactly(1L);
+            assertThat(underTest.getSnapshot().getByName(List.of("INTERNET COMPUTER")))
+                    .extracting(CryptocurrencyDTO::getId)
+                    .containsExactly(1L);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void whenApplicationReady_thenSnapshotPublished() {
+        when(cryptocurrencyRepository.findAllWithPrice())
+                .thenReturn(List.of(cryptocurrency(1L, "Bitcoin", "BTC")));
+
+        underTest.onApplicationReady();
+
+        assertThat(underTest.getSnapshot().cryptocurrencies())
+                .extracting(CryptocurrencyDTO::getSymbol)
+                .containsExactly("BTC");
+    }
+
+    @Test
+    void whenPublishAgain_thenPreviousSnapshotUnchanged() {
+        when(cryptocurrencyRepository.findAllWithPrice())
+                .thenReturn(List.of(cryptocurrency(1L, "Bitcoin", "BTC")))
+                .thenReturn(List.of());
+
+        var firstSnapshot = underTest.publish();
+        underTest.publish();
+
+        assertThat(firstSnapshot.cryptocurrencies()).hasSize(1);
+        assertThat(underTest.getSnapshot().cryptocurrencies()).isEmpty();
+    }
+
+    @Test
+    void whenCryptocurrencyRemoved_thenListLastModifiedMovesForward() {
+        var bitcoin = cryptocurrency(1L, "Bitcoin", "BTC");
+        bitcoin.setLastUpdate(LocalDateTime.now(ZoneOffset.UTC).minusHours(1));
+        bitcoin.getPrice().setLastUpdate(LocalDateTime.now(ZoneOffset.UTC).minusHours(1));
+        var ethereum = cryptocurrency(2L, "Ethereum", "ETH");
+        ethereum.setLastUpdate(LocalDateTime.now(ZoneOffset.UTC).minusDays(1));
+        ethereum.getPrice().setLastUpdate(LocalDateTime.now(ZoneOffset.UTC).minusDays(1));
+        when(cryptocurrencyRepository.findAllWithPrice())
+                .thenReturn(List.of(bitcoin, ethereum))
+                .thenReturn(List.of(ethereum))
+                .thenReturn(List.of(ethereum));
+
+        var firstLastModified = underTest.publish().listPayload().lastModified();
+        var afterRemoveLastModified = underTest.publish().listPayload().lastModified();
+        var unchangedLastModified = underTest.publish().listPayload().lastModified();
+
+        assertThat(afterRemoveLastModified).isGreaterThan(firstLastModified);
+        assertThat(unchangedLastModified).isEqualTo(afterRemoveLastModified);
+    }
+
+    private static Cryptocurrency cryptocurrency(Long id, String name, String symbol) {
+        var cryptocurrency = Cryptocurrency.builder()
+                .id(id)
+                .name(name)
+                .symbol(symbol)
+                .coinMarketId(id)
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build();
+        cryptocurrency.setPrice(Price.builder()
+                .id(id)
+                .priceCurrent(new BigDecimal("10.5"))
+                .cryptocurrency(cryptocurrency)
+                .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                .build());
+        return cryptocurrency;
+    }
+}
@@ -1,20 +1,31 @@
 package pl.cryptoportfolioapp.cryptopriceservice.service;
 
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.QueueDispatcher;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyMapDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyQuoteDTO;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.PriceQuoteDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
 import pl.cryptoportfolioapp.cryptopriceservice.exception.MarketApiClientException;
 import pl.cryptoportfolioapp.cryptopriceservice.extension.MockWebServerExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -129,6 +140,71 @@ class MarketApiClientServiceTest {
         );
     }
 
+    @Test
+    void whenServerRespondChunked200_thenClientStreamsUsdQuoteRecords() {
+        var bodyRes = """
+                {
+                "status": {
+                "error_code": 0,
+                "credit_count": 1
+                },
+                "data": {
+                "1": {
+                "id": 1,
+                "name": "Bitcoin",
+                "symbol": "BTC",
+                "tags": ["mineable", {"slug": "pow"}],
+                "platform": null,
+                "quote": {
+                "EUR": {
+                "price": 6100.5
+                },
+                "USD": {
+                "price": 6602.60701122,
+                "volume_24h": 4314444687.5194,
+                "percent_change_1h": 0.988615,
+                "percent_change_24h": 4.37185,
+                "percent_change_90d": null,
+                "last_updated": "2018-08-09T21:56:28.000Z"
+                }
+                }
+                },
+                "1027": {
+                "id": 1027,
+                "name": "Ethereum",
+                "symbol": "ETH",
+                "quote": {
+                "USD": {
+                "price": 1500.5
+                }
+                }
+                }
+                }
+                }""";
+        mockWebServer.enqueue(
+                new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .setChunkedBody(bodyRes, 7)
+        );
+
+        var expected = underTest.fetchLatestQuoteRecordsByIds("1,1027")
+                .collectList()
+                .block();
+
+        assertThat(expected)
+                .extracting(
+                        QuoteRecord::coinMarketId,
+                        QuoteRecord::priceCurrent,
+                        QuoteRecord::percentChange1h,
+                        QuoteRecord::percentChange24h,
+                        QuoteRecord::percentChange90d
+                ).containsExactly(
+                        tuple(1L, 6602_607011220000L, 988615000000L, 4_371850000000L, FixedPoint.NULL),
+                        tuple(1027L, 1500_500000000000L, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL)
+                );
+    }
+
     @Test
     void whenServerRespond400_thenClientThrowCustomExc() {
         var bodyRes = """
@@ -258,4 +334,127 @@ class MarketApiClientServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void whenFetchNotSubscribed_thenNoRequestSent() {
+        var requestCount = mockWebServer.getRequestCount();
+
+        underTest.fetchLatestPriceByIds("1");
+        underTest.fetchCryptoMarketIdBySymbol("BTC");
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(requestCount);
+    }
+
+    @Test
+    void whenFetchesComposed_thenRequestsInFlightTogether() throws Exception {
+        var bothRequestsArrived = new CountDownLatch(2);
+        mockWebServer.setDispatcher(new Dispatcher() {
+            @NotNull
+            @Override
+            public MockResponse dispatch(@NotNull RecordedRequest recordedRequest) throws InterruptedException {
+                bothRequestsArrived.countDown();
+                bothRequestsArrived.await(5, TimeUnit.SECONDS);
+                var body = recordedRequest.getPath().contains("symbol") ?
+                        "{\"data\":[{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\"}]}" :
+                        "{\"data\":{\"1\":{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\"}}}";
+                return new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .setBody(body);
+            }
+        });
+        try {
+            var result = Mono.zip(underTest.fetchLatestPriceByIds("1"), underTest.fetchCryptoMarketIdBySymbol("BTC"))
+                    .block();
+
+            assertThat(bothRequestsArrived.getCount()).isZero();
+            assertThat(result.getT1().getData()).containsOnlyKeys("1");
+            assertThat(result.getT2().getData())
+                    .extracting(CryptocurrencyMapDTO::getCoinMarketId)
+                    .containsExactly(1L);
+        } finally {
+            mockWebServer.setDispatcher(new QueueDispatcher());
+        }
+    }
+
+    @Test
+    void whenQuoteChunkSizeLessThanOne_thenFailOnStartup() {
+        ReflectionTestUtils.setField(underTest, "quoteChunkSize", 0);
+
+        assertThatThrownBy(() -> underTest.validateQuoteChunkSize())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("api.coin.market.cap.quote.chunk.size");
+    }
+
+    @Test
+    void whenOneOfChunksFails_thenReturnQuotesOfRemainingChunks() {
+        ReflectionTestUtils.setField(underTest, "quoteChunkSize", 1);
+        ReflectionTestUtils.setField(underTest, "quoteChunkConcurrency", 1);
+        var bodyRes = """
+                {
+                "data": {
+                "1": {
+                "id": 1,
+                "name": "Bitcoin",
+                "symbol": "BTC",
+                "quote": {
+                "USD": {
+                "price": 6602.60701122
+                }
+                }
+                }
+                }
+                }""";
+        var bodyRes400 = """
+                {
+                "status": {
+                "error_code": 400,
+                "error_message": "Invalid value for \\"id\\""
+                }
+                }""";
+        mockWebServer.enqueue(
+                new MockResponse()
+                        .setResponseCode(200)
+                        .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .setBody(bodyRes)
+        );
+        mockWebServer.enqueue(
+                new MockResponse()
+                        .setResponseCode(400)
+                        .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                        .setBody(bodyRes400)
+        );
+
+        var expected = underTest.fetchLatestQuoteRecordsByChunkedIds(List.of(1L, 1234567890L))
+                .collectList()
+                .block();
+
+        assertThat(expected)
+                .extracting(QuoteRecord::coinMarketId, QuoteRecord::priceCurrent)
+                .containsExactly(tuple(1L, 6602_607011220000L));
+    }
+
+    @Test
+    void whenAllChunksFail_thenClientThrowCustomExc() {
+        ReflectionTestUtils.setField(underTest, "quoteChunkSize", 1);
+        ReflectionTestUtils.setField(underTest, "quoteChunkConcurrency", 1);
+        var bodyRes = """
+                {
+                "status": {
+                "error_code": 500,
+                "error_message": "An internal server error occurred"
+                }
+                }""";
+        for (int i = 0; i < 2; i++) {
+            mockWebServer.enqueue(
+                    new MockResponse()
+                            .setResponseCode(500)
+                            .setHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                            .setBody(bodyRes)
+            );
+        }
+
+        assertThatThrownBy(() -> underTest.fetchLatestQuoteRecordsByChunkedIds(List.of(1L, 1027L)).blockLast())
+                .isInstanceOf(MarketApiClientException.class)
+                .hasMessageContaining("serverMessage: An internal server error occurred");
+    }
+}
@@ -0,0 +1,186 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.PriceQuoteDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@Tag("UnitTest")
+class PriceChangeDetectorUnitTest {
+
+    private PriceChangeDetector underTest;
+    private CryptocurrencyDTO bitcoin;
+    private CryptocurrencyDTO ethereum;
+    private CryptocurrencyDTO polygon;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new PriceChangeDetector();
+        bitcoin = cryptocurrencyDTO(1L, 1L, new BigDecimal("20000.5"));
+        ethereum = cryptocurrencyDTO(2L, 1027L, new BigDecimal("1500.5"));
+        polygon = cryptocurrencyDTO(3L, 3890L, new BigDecimal("0.9"));
+    }
+
+    @Test
+    void whenRowSeenFirstTime_thenComparedWithLoadedPrice() {
+        var quotes = Map.of(
+                1L, quoteRecord(1L, "20000.5"),
+                1027L, quoteRecord(1027L, "1600.5"));
+
+        var expected = underTest.filterChangedOfAll(List.of(bitcoin, ethereum, polygon), quotes);
+
+        assertThat(expected).containsExactly(ethereum);
+        assertThat(underTest.getSkipRatio()).isEqualTo(0.5);
+    }
+
+    @Test
+    void whenRemembered_thenComparedWithPersistedQuote() {
+        var quotes = Map.of(1027L, quoteRecord(1027L, "1600.5"));
+        underTest.filterChanged(List.of(ethereum), quotes);
+        underTest.remember(List.of(ethereum), quotes);
+
+        var expected = underTest.filterChangedOfAll(List.of(ethereum), quotes);
+
+        assertThat(expected).isEmpty();
+        assertThat(underTest.getSkipRatio()).isEqualTo(1.0);
+    }
+
+    @Test
+    void whenChangeNotRemembered_thenDetectedAgain() {
+        var quotes = Map.of(1027L, quoteRecord(1027L, "1600.5"));
+        underTest.filterChanged(List.of(ethereum), quotes);
+
+        var expected = underTest.filterChanged(List.of(ethereum), quotes);
+
+        assertThat(expected).containsExactly(ethereum);
+    }
+
+    @Test
+    void whenSelectedCryptocurrenciesRefreshed_thenOthersKeepRememberedValuesAndSkipRatio() {
+        var quotes = Map.of(
+                1L, quoteRecord(1L, "21000.5"),
+                1027L, quoteRecord(1027L, "1600.5"));
+        underTest.filterChangedOfAll(List.of(bitcoin, ethereum), quotes);
+        underTest.remember(List.of(bitcoin, ethereum), quotes);
+
+        underTest.filterChanged(List.of(bitcoin), Map.of(1L, quoteRecord(1L, "22000.5")));
+        var expected = underTest.filterChanged(List.of(ethereum), quotes);
+
+        assertThat(expected).isEmpty();
+        assertThat(underTest.getSkipRatio()).isZero();
+    }
+
+    @Test
+    void whenMissingFromFullRefresh_thenRememberedValuesDropped() {
+        var quotes = Map.of(1027L, quoteRecord(1027L, "1600.5"));
+        underTest.filterChangedOfAll(List.of(ethereum), quotes);
+        underTest.remember(List.of(ethereum), quotes);
+
+        underTest.filterChangedOfAll(List.of(bitcoin), Map.of());
+        var expected = underTest.filterChanged(List.of(ethereum), quotes);
+
+        assertThat(expected).containsExactly(ethereum);
+    }
+
+    @Test
+    void whenForgotten_thenComparedWithLoadedPriceAgain() {
+        var quotes = Map.of(1027L, quoteRecord(1027L, "1600.5"));
+        underTest.filterChanged(List.of(ethereum), quotes);
+        underTest.remember(List.of(ethereum), quotes);
+
+        underTest.forget(ethereum.getPriceDTO().getId());
+        var expected = underTest.filterChanged(List.of(ethereum), quotes);
+
+        assertThat(expected).containsExactly(ethereum);
+    }
+
+    @Test
+    void whenChangeWithinEpsilon_thenSkipped() {
+        ReflectionTestUtils.setField(underTest, "epsilon", 0.001);
+
+        var expected = underTest.filterChanged(List.of(bitcoin, ethereum), Map.of(
+                1L, quoteRecord(1L, "20010.5"),
+                1027L, quoteRecord(1027L, "1502.5")));
+
+        assertThat(expected).containsExactly(ethereum);
+    }
+
+    @Test
+    void whenPercentChangeAppears_thenChanged() {
+        var quoteRecord = new QuoteRecord(1L, FixedPoint.valueOf(new BigDecimal("20000.5")),
+                FixedPoint.valueOf(BigDecimal.ONE), FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL,
+                FixedPoint.NULL, FixedPoint.NULL, null);
+
+        var expected = underTest.filterChanged(List.of(bitcoin), Map.of(1L, quoteRecord));
+
+        assertThat(expected).containsExactly(bitcoin);
+    }
+
+    @Test
+    void whenQuoteHasMoreDigitsThanColumn_thenComparedAtColumnScale() {
+        var quotes = Map.of(1L, quoteRecord(1L, "20000.5000000000004"));
+
+        var expected = underTest.filterChanged(List.of(bitcoin), quotes);
+
+        assertThat(expected).isEmpty();
+    }
+
+    @Test
+    void whenOverflowQuote_thenAlwaysChanged() {
+        var quoteRecord = new QuoteRecord(1L, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL,
+                FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL,
+                new PriceQuoteDTO().setPriceCurrent(new BigDecimal("20000.5")));
+        underTest.remember(List.of(bitcoin), Map.of(1L, quoteRecord));
+
+        var expected = underTest.filterChanged(List.of(bitcoin), Map.of(1L, quoteRecord));
+
+        assertThat(expected).containsExactly(bitcoin);
+    }
+
+    @Test
+    void whenLoadedPriceOutOfFixedPointRange_thenChanged() {
+        bitcoin.getPriceDTO().setPriceCurrent(new BigDecimal("10000000.5"));
+
+        var expected = underTest.filterChanged(List.of(bitcoin), Map.of(1L, quoteRecord(1L, "20000.5")));
+
+        assertThat(expected).containsExactly(bitcoin);
+    }
+
+    @Test
+    void whenDetectionDisabled_thenEveryCryptocurrencyReturned() {
+        ReflectionTestUtils.setField(underTest, "enabled", false);
+        var cryptocurrencyDTOS = List.of(bitcoin, ethereum, polygon);
+
+        var expected = underTest.filterChanged(cryptocurrencyDTOS, Map.of(1L, quoteRecord(1L, "20000.5")));
+
+        assertThat(expected).isSameAs(cryptocurrencyDTOS);
+    }
+
+    private static CryptocurrencyDTO cryptocurrencyDTO(Long id, Long coinMarketId, BigDecimal priceCurrent) {
+        return new CryptocurrencyDTO()
+                .setId(id)
+                .setCoinMarketId(coinMarketId)
+                .setPriceDTO(new PriceDTO()
+                        .setId(id)
+                        .setPriceCurrent(priceCurrent.setScale(FixedPoint.SCALE)));
+    }
+
+    private static QuoteRecord quoteRecord(Long coinMarketId, String priceCurrent) {
+        return new QuoteRecord(coinMarketId, FixedPoint.valueOf(new BigDecimal(priceCurrent)), FixedPoint.NULL,
+                FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, null);
+    }
+}
@@ -0,0 +1,68 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@Tag("UnitTest")
+class PriceChangeStreamServiceUnitTest {
+
+    private final PriceChangeStreamService underTest = new PriceChangeStreamService();
+
+    @Test
+    void whenPublish_thenEverySubscriberReceivesChanges() {
+        var firstReceived = new CopyOnWriteArrayList<Long>();
+        var secondReceived = new CopyOnWriteArrayList<Long>();
+        var firstSubscription = underTest.stream().subscribe(change -> firstReceived.add(change.cryptocurrency().getId()));
+        var secondSubscription = underTest.stream().subscribe(change -> secondReceived.add(change.cryptocurrency().getId()));
+
+        underTest.publish(List.of(priceChange(1L), priceChange(2L)));
+
+        assertThat(firstReceived).containsExactly(1L, 2L);
+        assertThat(secondReceived).containsExactly(1L, 2L);
+        firstSubscription.dispose();
+        secondSubscription.dispose();
+    }
+
+    @Test
+    void whenSubscriberIsSlow_thenOldestChangesDroppedForItOnly() {
+        ReflectionTestUtils.setField(underTest, "subscriberBufferSize", 2);
+        var slowReceived = new CopyOnWriteArrayList<Long>();
+        var fastReceived = new CopyOnWriteArrayList<Long>();
+        var slowSubscriber = new BaseSubscriber<PriceChange>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+
+            @Override
+            protected void hookOnNext(PriceChange value) {
+                slowReceived.add(value.cryptocurrency().getId());
+            }
+        };
+        underTest.stream().subscribe(slowSubscriber);
+        var fastSubscription = underTest.stream().subscribe(change -> fastReceived.add(change.cryptocurrency().getId()));
+
+        underTest.publish(List.of(priceChange(1L), priceChange(2L), priceChange(3L), priceChange(4L)));
+        slowSubscriber.request(10);
+
+        assertThat(slowReceived).containsExactly(3L, 4L);
+        assertThat(fastReceived).containsExactly(1L, 2L, 3L, 4L);
+        slowSubscriber.dispose();
+        fastSubscription.dispose();
+    }
+
+    private static PriceChange priceChange(Long id) {
+        return new PriceChange(new CryptocurrencyDTO().setId(id), null);
+    }
+}
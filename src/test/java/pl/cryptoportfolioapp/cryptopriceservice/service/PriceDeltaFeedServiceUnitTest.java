@@ -0,0 +1,135 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class PriceDeltaFeedServiceUnitTest {
+
+    @Mock
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    @Mock
+    private WebSocketSession bitcoinSession;
+
+    @Mock
+    private WebSocketSession ethereumSession;
+
+    @InjectMocks
+    private PriceDeltaFeedService underTest;
+
+    private CryptocurrencyDTO bitcoin;
+    private CryptocurrencyDTO ethereum;
+
+    @BeforeEach
+    void setUp() {
+        bitcoin = new CryptocurrencyDTO()
+                .setId(1L)
+                .setName("Bitcoin")
+                .setSymbol("BTC")
+                .setCoinMarketId(1L)
+                .setPriceDTO(new PriceDTO()
+                        .setPriceCurrent(new BigDecimal("20000.5"))
+                        .setPercentChange1h(new BigDecimal("0.5")));
+        ethereum = new CryptocurrencyDTO()
+                .setId(2L)
+                .setName("Ethereum")
+                .setSymbol("ETH")
+                .setCoinMarketId(1027L)
+                .setPriceDTO(new PriceDTO()
+                        .setPriceCurrent(new BigDecimal("1500.5")));
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(CryptocurrencySnapshot.of(List.of(bitcoin, ethereum), new ObjectMapper()));
+        when(bitcoinSession.getId()).thenReturn("bitcoin");
+        when(bitcoinSession.isOpen()).thenReturn(true);
+        lenient().when(ethereumSession.getId()).thenReturn("ethereum");
+        lenient().when(ethereumSession.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    void whenSubscribe_thenCurrentPricesSentAsFullDelta() throws Exception {
+        underTest.subscribe(bitcoinSession, List.of("btc"));
+
+        var frame = sentFrames(bitcoinSession, 1).get(0);
+        assertThat(frame.getLong()).isEqualTo(1L);
+        assertThat(frame.get()).isEqualTo((byte) 0b11);
+        assertThat(frame.getDouble()).isEqualTo(20000.5);
+        assertThat(frame.getDouble()).isEqualTo(0.5);
+        assertThat(frame.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void whenPublish_thenOnlyInterestedSessionReceivesChangedFields() throws Exception {
+        underTest.subscribe(bitcoinSession, List.of("BTC"));
+        underTest.subscribe(ethereumSession, List.of("ETH"));
+        clearInvocations(bitcoinSession, ethereumSession);
+        var previousPrice = bitcoin.getPriceDTO();
+        bitcoin.setPriceDTO(new PriceDTO()
+                .setPriceCurrent(new BigDecimal("21000.5"))
+                .setPercentChange1h(new BigDecimal("0.50")));
+
+        underTest.publish(List.of(new PriceChange(bitcoin, previousPrice)));
+
+        var frame = sentFrames(bitcoinSession, 1).get(0);
+        assertThat(frame.getLong()).isEqualTo(1L);
+        assertThat(frame.get()).isEqualTo((byte) 0b1);
+        assertThat(frame.getDouble()).isEqualTo(21000.5);
+        assertThat(frame.hasRemaining()).isFalse();
+        verify(ethereumSession, never()).sendMessage(any());
+    }
+
+    @Test
+    void whenSessionRemoved_thenNoDeltasSent() throws Exception {
+        underTest.subscribe(bitcoinSession, List.of("BTC"));
+        underTest.remove(bitcoinSession);
+        clearInvocations(bitcoinSession);
+
+        underTest.publish(List.of(new PriceChange(bitcoin, null)));
+
+        verify(bitcoinSession, never()).sendMessage(any());
+    }
+
+    @Test
+    void whenSessionClosedBeforeSubscribeRegistered_thenNoSubscriptionEntriesLeft() throws Exception {
+        when(bitcoinSession.isOpen()).thenReturn(false);
+        underTest.remove(bitcoinSession);
+
+        underTest.subscribe(bitcoinSession, List.of("BTC"));
+
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(underTest, "sessionsByCoinMarketId")).isEmpty();
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(underTest, "coinMarketIdsBySessionId")).isEmpty();
+        verify(bitcoinSession, never()).sendMessage(any());
+    }
+
+    private static List<ByteBuffer> sentFrames(WebSocketSession session, int count) throws Exception {
+        var captor = ArgumentCaptor.forClass(BinaryMessage.class);
+        verify(session, times(count)).sendMessage(captor.capture());
+        return captor.getAllValues().stream()
+                .map(BinaryMessage::getPayload)
+                .toList();
+    }
+}
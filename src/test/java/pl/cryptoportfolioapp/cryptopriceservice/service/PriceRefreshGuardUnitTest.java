@@ -0,0 +1,174 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.RefreshLockRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class PriceRefreshGuardUnitTest {
+
+    @Mock
+    private RefreshLockRepository refreshLockRepository;
+
+    @InjectMocks
+    private PriceRefreshGuard underTest;
+
+    @Test
+    void whenFullRefreshRequestedWhileRunning_thenCallerGetsRunningRefreshResult() throws Exception {
+        var started = new CountDownLatch(1);
+        var finish = new CountDownLatch(1);
+        var runs = new AtomicInteger();
+        var prices = List.of(Price.builder().priceCurrent(BigDecimal.ONE).build());
+
+        var first = CompletableFuture.supplyAsync(() -> underTest.runFullRefresh(() -> {
+            runs.incrementAndGet();
+            started.countDown();
+            await(finish);
+            return prices;
+        }, () -> {
+        }));
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+        var second = CompletableFuture.supplyAsync(() -> underTest.runFullRefresh(() -> {
+            runs.incrementAndGet();
+            return List.of();
+        }, () -> {
+        }));
+        Thread.sleep(100);
+        finish.countDown();
+
+        assertThat(first.get(2, TimeUnit.SECONDS)).isSameAs(prices);
+        assertThat(second.get(2, TimeUnit.SECONDS)).isSameAs(prices);
+        assertThat(runs).hasValue(1);
+        verifyNoInteractions(refreshLockRepository);
+    }
+
+    @Test
+    void whenLeaseHeldByAnotherInstance_thenRefreshSkippedAfterHolderCompleted() throws Exception {
+        ReflectionTestUtils.setField(underTest, "leaseEnabled", true);
+        ReflectionTestUtils.setField(underTest, "leasePollInterval", Duration.ofMillis(1));
+        when(refreshLockRepository.tryAcquire(eq(PriceRefreshGuard.LEASE_NAME), anyString(), any()))
+                .thenReturn(false);
+        when(refreshLockRepository.isRunning(PriceRefreshGuard.LEASE_NAME))
+                .thenReturn(true, true, false);
+        var reloaded = new CountDownLatch(1);
+
+        var prices = underTest.runFullRefresh(() -> {
+            throw new AssertionError("refresh should be skipped");
+        }, reloaded::countDown);
+
+        assertThat(prices).isEmpty();
+        assertThat(reloaded.await(2, TimeUnit.SECONDS)).isTrue();
+        verify(refreshLockRepository, times(3)).isRunning(PriceRefreshGuard.LEASE_NAME);
+    }
+
+    @Test
+    void whenLeaseHolderDoesNotComplete_thenWaitTimesOutAndSnapshotReloaded() throws Exception {
+        ReflectionTestUtils.setField(underTest, "leaseEnabled", true);
+        ReflectionTestUtils.setField(underTest, "leasePollInterval", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(underTest, "leaseWaitTimeout", Duration.ofMillis(20));
+        when(refreshLockRepository.tryAcquire(eq(PriceRefreshGuard.LEASE_NAME), anyString(), any()))
+                .thenReturn(false);
+        when(refreshLockRepository.isRunning(PriceRefreshGuard.LEASE_NAME))
+                .thenReturn(true);
+        var reloaded = new CountDownLatch(1);
+
+        underTest.runFullRefresh(List::of, reloaded::countDown);
+
+        assertThat(reloaded.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void whenWaitingForLeaseHolder_thenCallerReturnsAndOtherRefreshesRun() throws Exception {
+        ReflectionTestUtils.setField(underTest, "leaseEnabled", true);
+        ReflectionTestUtils.setField(underTest, "leaseWaitTimeout", Duration.ofMillis(500));
+        when(refreshLockRepository.tryAcquire(eq(PriceRefreshGuard.LEASE_NAME), anyString(), any()))
+                .thenReturn(false);
+        lenient().when(refreshLockRepository.isRunning(PriceRefreshGuard.LEASE_NAME))
+                .thenReturn(true);
+        var whenLeaseHeldCalls = new AtomicInteger();
+        var prices = List.of(Price.builder().priceCurrent(BigDecimal.ONE).build());
+
+        var skipped = CompletableFuture.supplyAsync(() ->
+                underTest.runFullRefresh(List::of, whenLeaseHeldCalls::incrementAndGet));
+
+        assertThat(skipped.get(1, TimeUnit.SECONDS)).isEmpty();
+        assertThat(underTest.runPartialRefresh(() -> prices)).isSameAs(prices);
+        assertThat(whenLeaseHeldCalls).hasValue(0);
+    }
+
+    @Test
+    void whenRefreshUnderLeaseSucceeds_thenLeaseCompletedAndKept() {
+        ReflectionTestUtils.setField(underTest, "leaseEnabled", true);
+        when(refreshLockRepository.tryAcquire(eq(PriceRefreshGuard.LEASE_NAME), anyString(), any()))
+                .thenReturn(true);
+
+        underTest.runFullRefresh(List::of, () -> {
+        });
+
+        verify(refreshLockRepository).complete(eq(PriceRefreshGuard.LEASE_NAME), anyString());
+        verify(refreshLockRepository, never()).release(any(), any());
+    }
+
+    @Test
+    void whenRefreshUnderLeaseFails_thenLeaseReleased() {
+        ReflectionTestUtils.setField(underTest, "leaseEnabled", true);
+        when(refreshLockRepository.tryAcquire(eq(PriceRefreshGuard.LEASE_NAME), anyString(), any()))
+                .thenReturn(true);
+
+        assertThatThrownBy(() -> underTest.runFullRefresh(() -> {
+            throw new IllegalStateException("upstream down");
+        }, () -> {
+        })).isInstanceOf(IllegalStateException.class);
+
+        verify(refreshLockRepository).release(eq(PriceRefreshGuard.LEASE_NAME), anyString());
+    }
+
+    @Test
+    void whenLeaseDisabled_thenAdaptiveLeaseHeldWithoutRepository() {
+        assertThat(underTest.holdAdaptiveLease(Duration.ofMinutes(3))).isTrue();
+        verifyNoInteractions(refreshLockRepository);
+    }
+
+    @Test
+    void whenAdaptiveLeaseHeldByAnotherInstance_thenNotHeld() {
+        ReflectionTestUtils.setField(underTest, "leaseEnabled", true);
+        when(refreshLockRepository.tryAcquire(eq(PriceRefreshGuard.ADAPTIVE_LEASE_NAME), anyString(),
+                eq(Duration.ofMinutes(3))))
+                .thenReturn(false);
+
+        assertThat(underTest.holdAdaptiveLease(Duration.ofMinutes(3))).isFalse();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
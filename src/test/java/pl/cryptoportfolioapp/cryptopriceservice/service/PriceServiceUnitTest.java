@@ -17,12 +17,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Karol Kuta-Orlowicz
@@ -67,10 +67,8 @@ class PriceServiceUnitTest {
 
     @Test
     void whenUpdateCurrentPrice_thenShouldUpdateSuccessful() {
-        when(priceRepository.findById(any()))
-                .thenReturn(Optional.of(price));
-        when(priceRepository.saveAll(List.of(price)))
-                .thenReturn(List.of(price));
+        when(priceRepository.countByIdIn(Set.of(price.getId())))
+                .thenReturn(1L);
 
         var expected = priceService.updatePrices(List.of(price));
 
@@ -80,15 +78,26 @@ class PriceServiceUnitTest {
                 .containsExactly(
                         price.getPriceCurrent()
                 );
+        verify(priceRepository).updateAll(List.of(price));
+        verify(priceRepository, never()).findById(any());
     }
 
     @Test
     void whenUpdateByNotExistPrice_thenThrowPriceNotFoundExc() {
-        when(priceRepository.findById(any()))
-                .thenThrow(new PriceNotFoundException(""));
+        when(priceRepository.countByIdIn(any()))
+                .thenReturn(0L);
 
         assertThatThrownBy(() -> priceService.updatePrices(List.of(price)))
                 .isInstanceOf(PriceNotFoundException.class);
+        verify(priceRepository, never()).updateAll(any());
+    }
+
+    @Test
+    void whenUpdateByEmptyList_thenSkipRepository() {
+        var expected = priceService.updatePrices(List.of());
+
+        assertThat(expected).isEmpty();
+        verifyNoInteractions(priceRepository);
     }
 
 }
\ No newline at end of file
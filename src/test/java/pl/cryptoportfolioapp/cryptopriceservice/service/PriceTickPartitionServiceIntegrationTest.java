@@ -0,0 +1,57 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(SpringExtension.class)
+@ExtendWith(MySqlTestContainerExtension.class)
+@SpringBootTest(properties = {
+        "price.tick.retention.days=30",
+        "price.tick.partition.days.ahead=3"
+})
+@Tag("IntegrationTest")
+class PriceTickPartitionServiceIntegrationTest {
+
+    @Autowired
+    private PriceTickPartitionService underTest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void whenMaintainPartitions_thenFutureDaysAddedAndExpiredDaysDropped() {
+        var today = LocalDate.now(ZoneOffset.UTC);
+        if (!underTest.getPartitionDays().isEmpty())
+            jdbcTemplate.execute("ALTER TABLE price_tick REMOVE PARTITIONING");
+        underTest.maintainPartitions(today.minusDays(40));
+        jdbcTemplate.update("INSERT INTO price_tick (cryptocurrency_id, ts, price_current) VALUES (?, ?, ?)",
+                1L, LocalDateTime.of(today.minusDays(40), LocalTime.NOON), 1);
+
+        underTest.maintainPartitions(today);
+
+        assertThat(underTest.getPartitionDays())
+                .first()
+                .isEqualTo(today.minusDays(30));
+        assertThat(underTest.getPartitionDays())
+                .last()
+                .isEqualTo(today.plusDays(3));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM price_tick", Long.class))
+                .isZero();
+    }
+}
@@ -0,0 +1,62 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class PriceTickPartitionServiceUnitTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private PriceTickPartitionService underTest;
+
+    @Test
+    void whenSingletonsInstantiated_thenTablePartitionedBeforeFirstAppend() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenReturn(List.of());
+
+        underTest.afterSingletonsInstantiated();
+
+        verify(jdbcTemplate).execute(startsWith("ALTER TABLE price_tick PARTITION BY RANGE"));
+    }
+
+    @Test
+    void whenPartitioningDisabled_thenTableNotTouched() {
+        ReflectionTestUtils.setField(underTest, "enabled", false);
+
+        underTest.afterSingletonsInstantiated();
+        underTest.scheduledMaintainPartitions();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void whenPartitioningFails_thenStartupContinues() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertThatNoException().isThrownBy(underTest::afterSingletonsInstantiated);
+    }
+}
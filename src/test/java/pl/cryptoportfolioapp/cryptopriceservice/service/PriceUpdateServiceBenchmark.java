@@ -0,0 +1,89 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling curve of matching upstream quotes to tracked cryptocurrencies.
+ * Run the main method from the test classpath, JMH forks its own JVM for the measurements.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PriceUpdateServiceBenchmark {
+
+    @Param({"100", "1000", "5000", "10000", "50000"})
+    private int coins;
+
+    private List<CryptocurrencyDTO> cryptocurrencyDTOS;
+    private Collection<QuoteRecord> quoteRecords;
+    private PriceUpdateService priceUpdateService;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(coins);
+        cryptocurrencyDTOS = new ArrayList<>(coins);
+        var quotes = new ArrayList<QuoteRecord>(coins);
+        for (long coinMarketId = 1; coinMarketId <= coins; coinMarketId++) {
+            cryptocurrencyDTOS.add(new CryptocurrencyDTO()
+                    .setId(coinMarketId)
+                    .setCoinMarketId(coinMarketId)
+                    .setPriceDTO(new PriceDTO().setId(coinMarketId)));
+            quotes.add(new QuoteRecord(coinMarketId,
+                    FixedPoint.valueOf(BigDecimal.valueOf(random.nextDouble() * 1000)),
+                    FixedPoint.valueOf(BigDecimal.valueOf(random.nextGaussian())),
+                    FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, null));
+        }
+        Collections.shuffle(quotes, random);
+        quoteRecords = quotes;
+        priceUpdateService = new PriceUpdateService();
+    }
+
+    @Benchmark
+    public void nestedScan(Blackhole blackhole) {
+        for (var cryptocurrencyDTO : cryptocurrencyDTOS) {
+            quoteRecords.stream()
+                    .filter(quoteRecord -> quoteRecord.coinMarketId() != null)
+                    .filter(quoteRecord -> quoteRecord.coinMarketId().equals(cryptocurrencyDTO.getCoinMarketId()))
+                    .findFirst()
+                    .ifPresent(quoteRecord ->
+                            CryptocurrencyMapper.INSTANCE.updateDtoByQuoteRecord(cryptocurrencyDTO.getPriceDTO(), quoteRecord));
+            blackhole.consume(cryptocurrencyDTO);
+        }
+    }
+
+    @Benchmark
+    public List<CryptocurrencyDTO> indexedLookup() {
+        return priceUpdateService.updateDtoByNewPrice(cryptocurrencyDTOS,
+                PriceUpdateService.indexByCoinMarketId(Flux.fromIterable(quoteRecords)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PriceUpdateServiceBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -504,7 +504,9 @@ class PriceUpdateServiceIntegrationTest {
 
         var expected = underTest.updateCryptocurrencyPrices();
 
-        assertThat(expected).extracting(
+        assertThat(expected).isEmpty();
+        assertThat(cryptocurrencyRepository.findAll()
+                .stream().map(Cryptocurrency::getPrice).toList()).extracting(
                 Price::getId,
                 Price::getPriceCurrent,
                 Price::getPercentChange1h,
@@ -600,7 +602,7 @@ class PriceUpdateServiceIntegrationTest {
 
         var expected = underTest.updateCryptocurrencyPrices();
 
-        assertThat(expected).hasSize(2);
+        assertThat(expected).isEmpty();
 
         assertThat(cryptocurrencyRepository.findAll()
                 .stream().map(Cryptocurrency::getPrice).toList()).extracting(
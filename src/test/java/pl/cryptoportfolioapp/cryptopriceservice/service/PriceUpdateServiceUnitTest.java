@@ -1,17 +1,28 @@
 package pl.cryptoportfolioapp.cryptopriceservice.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import pl.cryptoportfolioapp.cryptopriceservice.dto.client.CryptocurrencyQuoteDTO;
+import org.springframework.test.util.ReflectionTestUtils;
 import pl.cryptoportfolioapp.cryptopriceservice.dto.client.PriceQuoteDTO;
-import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuotesDataDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.CryptocurrencyMapper;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.CycleAvoidingMappingContext;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
 import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceBulkWriter;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceTickWriter;
+import reactor.core.publisher.Flux;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -22,7 +33,7 @@ import java.util.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.groups.Tuple.tuple;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Karol Kuta-Orlowicz
@@ -39,17 +50,46 @@ class PriceUpdateServiceUnitTest {
     @Mock
     private PriceService priceService;
 
+    @Mock
+    private PriceBulkWriter priceBulkWriter;
+
+    @Mock
+    private PriceTickWriter priceTickWriter;
+
+    @Mock
+    private CandleService candleService;
+
+    @Mock
+    private CryptocurrencySnapshotService cryptocurrencySnapshotService;
+
+    @Mock
+    private PriceChangeStreamService priceChangeStreamService;
+
+    @Mock
+    private PriceDeltaFeedService priceDeltaFeedService;
+
+    @Mock
+    private PriceChangeDetector priceChangeDetector;
+
+    @Spy
+    private PriceRefreshGuard priceRefreshGuard;
+
+    @Spy
+    private PriceCheckTracker priceCheckTracker;
+
     @InjectMocks
     private PriceUpdateService underTest;
 
+    @Captor
+    private ArgumentCaptor<List<PriceChange>> publishedChangesCaptor;
+    @Captor
+    private ArgumentCaptor<List<CryptocurrencyDTO>> rememberedCaptor;
+
     private List<Cryptocurrency> cryptocurrencyEntities;
     private Price priceETH;
     private Price priceBTC;
-    private QuotesDataDTO quotesDataDTO;
     private PriceQuoteDTO priceQuoteDtoBTC;
     private PriceQuoteDTO priceQuoteDtoETH;
-    private CryptocurrencyQuoteDTO cryptoQuoteDtoBTC;
-    private CryptocurrencyQuoteDTO cryptoQuoteDtoETH;
 
     @BeforeEach
     void setUp() {
@@ -105,28 +145,20 @@ class PriceUpdateServiceUnitTest {
                 .setPercentChange1h(new BigDecimal("25.5").setScale(12, RoundingMode.HALF_UP))
                 .setPercentChange24h(new BigDecimal("40.5").setScale(12, RoundingMode.HALF_UP));
 
-        cryptoQuoteDtoBTC = new CryptocurrencyQuoteDTO()
-                .setName(btcName)
-                .setSymbol(btcSymbol)
-                .setCoinMarketId(btcMarketId)
-                .setQuote(Map.of("USD", priceQuoteDtoBTC));
-        cryptoQuoteDtoETH = new CryptocurrencyQuoteDTO()
-                .setName(ethName)
-                .setSymbol(ethSymbol)
-                .setCoinMarketId(ethMarketId)
-                .setQuote(Map.of("USD", priceQuoteDtoETH));
-
-        quotesDataDTO = new QuotesDataDTO()
-                .setData(Map.of("1", cryptoQuoteDtoBTC, "1027", cryptoQuoteDtoETH));
-
+        lenient().when(cryptocurrencySnapshotService.publish())
+                .thenReturn(CryptocurrencySnapshot.EMPTY);
+        lenient().when(priceChangeDetector.filterChanged(any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(priceChangeDetector.filterChangedOfAll(any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
     void whenUpdateCryptocurrencyPrices_thenPricesShouldBeUpdated() {
         when(cryptocurrencyService.getCryptocurrencies())
                 .thenReturn(cryptocurrencyEntities);
-        when(marketApiClientService.getLatestPriceByIds(any()))
-                .thenReturn(Optional.of(quotesDataDTO));
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(quoteRecords());
         var priceEntities = cryptocurrencyEntities.stream()
                 .map(Cryptocurrency::getPrice)
                 .toList();
@@ -135,6 +167,7 @@ class PriceUpdateServiceUnitTest {
 
         var expected = underTest.updateCryptocurrencyPrices();
 
+        verify(priceTickWriter).append(expected);
         assertThat(expected)
                 .extracting(
                         Price::getId,
@@ -171,22 +204,8 @@ class PriceUpdateServiceUnitTest {
     void whenCryptoQuoteDTOFieldsAreNull_thenReturnPreviousPrices() {
         when(cryptocurrencyService.getCryptocurrencies())
                 .thenReturn(cryptocurrencyEntities);
-
-        cryptoQuoteDtoBTC.setName(null)
-                .setSymbol(null)
-                .setCoinMarketId(null)
-                .setQuote(null);
-
-        cryptoQuoteDtoETH.setName(null)
-                .setSymbol(null)
-                .setCoinMarketId(null)
-                .setQuote(null);
-
-        quotesDataDTO = new QuotesDataDTO()
-                .setData(Map.of("1", cryptoQuoteDtoBTC, "1027", cryptoQuoteDtoETH));
-
-        when(marketApiClientService.getLatestPriceByIds(any()))
-                .thenReturn(Optional.of(quotesDataDTO));
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(Flux.just(toQuoteRecord(null, new PriceQuoteDTO()), toQuoteRecord(null, new PriceQuoteDTO())));
 
         var priceEntities = cryptocurrencyEntities.stream()
                 .map(Cryptocurrency::getPrice)
@@ -219,18 +238,11 @@ class PriceUpdateServiceUnitTest {
     }
 
     @Test
-    void whenPriceQuoteDTOSFieldsAreNull_thenReturnPreviousPrices() {
+    void whenNoUsdQuoteDecoded_thenReturnPreviousPrices() {
         when(cryptocurrencyService.getCryptocurrencies())
                 .thenReturn(cryptocurrencyEntities);
-
-        cryptoQuoteDtoBTC.setQuote(new HashMap<>());
-        cryptoQuoteDtoETH.setQuote(new HashMap<>());
-
-        quotesDataDTO = new QuotesDataDTO()
-                .setData(Map.of("1", cryptoQuoteDtoBTC, "1027", cryptoQuoteDtoETH));
-
-        when(marketApiClientService.getLatestPriceByIds(any()))
-                .thenReturn(Optional.of(quotesDataDTO));
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(Flux.empty());
 
         var priceEntities = cryptocurrencyEntities.stream()
                 .map(Cryptocurrency::getPrice)
@@ -261,4 +273,161 @@ class PriceUpdateServiceUnitTest {
                         )
                 );
     }
-}
\ No newline at end of file
+
+    @Test
+    void whenPriceUnchanged_thenOnlyChangedPriceWrittenAndRemembered() {
+        when(cryptocurrencyService.getCryptocurrencies())
+                .thenReturn(cryptocurrencyEntities);
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(quoteRecords());
+        when(priceChangeDetector.filterChangedOfAll(any(), any()))
+                .thenAnswer(invocation -> invocation.<List<CryptocurrencyDTO>>getArgument(0).subList(0, 1));
+
+        var expected = underTest.updateCryptocurrencyPrices();
+
+        assertThat(expected)
+                .extracting(Price::getId, Price::getPriceCurrent)
+                .containsExactly(tuple(priceBTC.getId(), priceQuoteDtoBTC.getPriceCurrent()));
+        verify(priceChangeDetector).remember(rememberedCaptor.capture(), any());
+        assertThat(rememberedCaptor.getValue())
+                .extracting(CryptocurrencyDTO::getSymbol)
+                .containsExactly("BTC");
+    }
+
+    @Test
+    void whenSelectedCryptocurrenciesRefreshed_thenChangesFilteredWithoutFullRefreshEviction() {
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(quoteRecords());
+
+        underTest.updateCryptocurrencyPrices(List.of(cryptocurrencyEntities.get(0)));
+
+        verify(priceChangeDetector).filterChanged(any(), any());
+        verify(priceChangeDetector, never()).filterChangedOfAll(any(), any());
+    }
+
+    @Test
+    void whenQuotesWithoutCoinMarketId_thenIndexSkipsThem() {
+        var quoteRecordBTC = toQuoteRecord(1L, priceQuoteDtoBTC);
+        var quoteRecordETH = toQuoteRecord(1027L, priceQuoteDtoETH);
+        var untrackedQuote = toQuoteRecord(3890L, new PriceQuoteDTO().setPriceCurrent(BigDecimal.ONE));
+        var withoutIdQuote = toQuoteRecord(null, new PriceQuoteDTO().setPriceCurrent(BigDecimal.TEN));
+        var duplicatedQuote = toQuoteRecord(1L, new PriceQuoteDTO().setPriceCurrent(BigDecimal.ZERO));
+
+        var index = PriceUpdateService.indexByCoinMarketId(
+                Flux.just(quoteRecordBTC, untrackedQuote, withoutIdQuote, quoteRecordETH, duplicatedQuote));
+
+        assertThat(index).containsOnlyKeys(1L, 1027L, 3890L);
+        assertThat(index.get(1L)).isSameAs(quoteRecordBTC);
+        assertThat(index.get(1027L)).isSameAs(quoteRecordETH);
+    }
+
+    @Test
+    void whenBulkWriterEnabled_thenPricesWrittenWithoutPriceService() {
+        ReflectionTestUtils.setField(underTest, "bulkWriterEnabled", true);
+        when(cryptocurrencyService.getCryptocurrencies())
+                .thenReturn(cryptocurrencyEntities);
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(quoteRecords());
+
+        var expected = underTest.updateCryptocurrencyPrices();
+
+        verify(priceBulkWriter).write(expected);
+        verifyNoInteractions(priceService);
+        assertThat(expected)
+                .extracting(Price::getId, Price::getPriceCurrent)
+                .containsExactly(
+                        tuple(priceBTC.getId(), priceQuoteDtoBTC.getPriceCurrent()),
+                        tuple(priceETH.getId(), priceQuoteDtoETH.getPriceCurrent())
+                );
+    }
+
+    @Test
+    void whenOnlyOnePriceChanged_thenOnlyChangedCryptocurrencyStreamed() {
+        priceQuoteDtoETH.setPriceCurrent(priceETH.getPriceCurrent())
+                .setPercentChange1h(priceETH.getPercentChange1h())
+                .setPercentChange24h(null);
+        when(cryptocurrencyService.getCryptocurrencies())
+                .thenReturn(cryptocurrencyEntities);
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(quoteRecords());
+        when(cryptocurrencySnapshotService.publish())
+                .thenReturn(CryptocurrencySnapshot.of(cryptocurrencyEntities.stream()
+                        .map(cryptocurrency -> CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrency,
+                                new CycleAvoidingMappingContext()))
+                        .toList(), new ObjectMapper().findAndRegisterModules()));
+
+        underTest.updateCryptocurrencyPrices();
+
+        verify(priceChangeStreamService).publish(publishedChangesCaptor.capture());
+        assertThat(publishedChangesCaptor.getValue())
+                .extracting(priceChange -> priceChange.cryptocurrency().getSymbol(),
+                        priceChange -> priceChange.previousPrice().getPriceCurrent())
+                .containsExactly(tuple("BTC", priceBTC.getPriceCurrent()));
+    }
+
+    @Test
+    void whenQuotesUnchanged_thenNothingWrittenButCryptocurrenciesMarkedChecked() {
+        when(cryptocurrencyService.getCryptocurrencies())
+                .thenReturn(cryptocurrencyEntities);
+        when(marketApiClientService.fetchLatestQuoteRecordsByChunkedIds(any()))
+                .thenReturn(Flux.just(toQuoteRecord(1L, priceQuoteDtoBTC)));
+        when(priceChangeDetector.filterChangedOfAll(any(), any()))
+                .thenReturn(List.of());
+
+        var prices = underTest.updateCryptocurrencyPrices();
+
+        assertThat(prices).isEmpty();
+        assertThat(priceCheckTracker.getCheckedAt(1L)).isPresent();
+        assertThat(priceCheckTracker.getCheckedAt(2L)).isEmpty();
+    }
+
+    @Test
+    void whenLeaseHeldByAnotherInstance_thenChangesFoundBySnapshotDiffAndPublished() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return List.of();
+        }).when(priceRefreshGuard).runFullRefresh(any(), any());
+        var objectMapper = new ObjectMapper().findAndRegisterModules();
+        when(cryptocurrencySnapshotService.getSnapshot())
+                .thenReturn(CryptocurrencySnapshot.of(toDtos(cryptocurrencyEntities), objectMapper));
+        priceBTC.setPriceCurrent(priceQuoteDtoBTC.getPriceCurrent());
+        when(cryptocurrencySnapshotService.publish())
+                .thenReturn(CryptocurrencySnapshot.of(toDtos(cryptocurrencyEntities), objectMapper));
+
+        var prices = underTest.updateCryptocurrencyPrices();
+
+        assertThat(prices).isEmpty();
+        verifyNoInteractions(marketApiClientService, priceService, priceTickWriter);
+        verify(priceChangeStreamService).publish(publishedChangesCaptor.capture());
+        verify(priceDeltaFeedService).publish(publishedChangesCaptor.getValue());
+        assertThat(publishedChangesCaptor.getValue())
+                .extracting(priceChange -> priceChange.cryptocurrency().getSymbol(),
+                        priceChange -> priceChange.cryptocurrency().getPriceDTO().getPriceCurrent(),
+                        priceChange -> priceChange.previousPrice().getPriceCurrent())
+                .containsExactly(tuple("BTC", priceQuoteDtoBTC.getPriceCurrent(),
+                        new BigDecimal("20000.5").setScale(12, RoundingMode.HALF_UP)));
+    }
+
+    private static List<CryptocurrencyDTO> toDtos(List<Cryptocurrency> cryptocurrencies) {
+        return cryptocurrencies.stream()
+                .map(cryptocurrency -> CryptocurrencyMapper.INSTANCE.mapEntityToCryptocurrencyDto(cryptocurrency,
+                        new CycleAvoidingMappingContext()))
+                .toList();
+    }
+
+    private Flux<QuoteRecord> quoteRecords() {
+        return Flux.just(toQuoteRecord(1L, priceQuoteDtoBTC), toQuoteRecord(1027L, priceQuoteDtoETH));
+    }
+
+    private static QuoteRecord toQuoteRecord(Long coinMarketId, PriceQuoteDTO priceQuoteDTO) {
+        return new QuoteRecord(coinMarketId,
+                FixedPoint.valueOf(priceQuoteDTO.getPriceCurrent()),
+                FixedPoint.valueOf(priceQuoteDTO.getPercentChange1h()),
+                FixedPoint.valueOf(priceQuoteDTO.getPercentChange24h()),
+                FixedPoint.valueOf(priceQuoteDTO.getPercentChange7d()),
+                FixedPoint.valueOf(priceQuoteDTO.getPercentChange30d()),
+                FixedPoint.valueOf(priceQuoteDTO.getPercentChange60d()),
+                FixedPoint.valueOf(priceQuoteDTO.getPercentChange90d()),
+                null);
+    }
+}
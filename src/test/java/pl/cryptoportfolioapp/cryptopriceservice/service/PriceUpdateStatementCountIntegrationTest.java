@@ -0,0 +1,115 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.extension.MySqlTestContainerExtension;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Cryptocurrency;
+import pl.cryptoportfolioapp.cryptopriceservice.model.Price;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.CryptocurrencyRepository;
+import pl.cryptoportfolioapp.cryptopriceservice.repository.PriceRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reports JDBC statements needed to persist one full watchlist refresh,
+ * for the previous per-entity path and for the batched {@link PriceService#updatePrices(List)}.
+ *
+ * @author Karol Kuta-Orlowicz
+ */
+@Slf4j
+@ExtendWith(SpringExtension.class)
+@ExtendWith(MySqlTestContainerExtension.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Tag("IntegrationTest")
+class PriceUpdateStatementCountIntegrationTest {
+
+    private static final int COINS = 5_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Autowired
+    private PriceService underTest;
+
+    @Autowired
+    private CryptocurrencyRepository cryptocurrencyRepository;
+
+    @Autowired
+    private PriceRepository priceRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        var cryptocurrencies = LongStream.rangeClosed(1, COINS)
+                .mapToObj(id -> {
+                    var cryptocurrency = Cryptocurrency.builder()
+                            .name("Coin" + id)
+                            .symbol("C" + id)
+                            .coinMarketId(id)
+                            .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                            .build();
+                    cryptocurrency.setPrice(Price.builder()
+                            .cryptocurrency(cryptocurrency)
+                            .priceCurrent(BigDecimal.ONE)
+                            .lastUpdate(LocalDateTime.now(ZoneOffset.UTC))
+                            .build());
+                    return cryptocurrency;
+                })
+                .toList();
+        cryptocurrencyRepository.saveAll(cryptocurrencies);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cryptocurrencyRepository.deleteAll();
+    }
+
+    @Test
+    void whenUpdateFullWatchlist_thenPricesReachDatabaseInBatches() {
+        var pricesBefore = loadPricesWithNewValue(new BigDecimal("2.5"));
+        statistics.clear();
+        pricesBefore.forEach(price -> priceRepository.findById(price.getId()));
+        priceRepository.saveAll(pricesBefore);
+        var statementsBefore = statistics.getPrepareStatementCount();
+
+        var pricesAfter = loadPricesWithNewValue(new BigDecimal("3.5"));
+        statistics.clear();
+        underTest.updatePrices(pricesAfter);
+        var statementsAfter = statistics.getPrepareStatementCount();
+
+        log.info("Statements per refresh of {} prices, before: {}, after: {}",
+                COINS, statementsBefore, statementsAfter);
+        assertThat(statementsAfter)
+                .isLessThanOrEqualTo(COINS / BATCH_SIZE + 2);
+        assertThat(priceRepository.findAll())
+                .extracting(Price::getPriceCurrent)
+                .allMatch(priceCurrent -> priceCurrent.compareTo(new BigDecimal("3.5")) == 0);
+    }
+
+    private List<Price> loadPricesWithNewValue(BigDecimal priceCurrent) {
+        return cryptocurrencyRepository.findAll()
+                .stream()
+                .map(Cryptocurrency::getPrice)
+                .peek(price -> price.setPriceCurrent(priceCurrent))
+                .toList();
+    }
+}
@@ -0,0 +1,172 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.PriceQuoteDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.client.QuoteRecord;
+import pl.cryptoportfolioapp.cryptopriceservice.mapper.util.FixedPoint;
+import reactor.core.publisher.Flux;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@Tag("UnitTest")
+class QuoteStreamDecoderUnitTest {
+
+    private static final String QUOTES_BY_ID = """
+            {
+            "data": {
+            "1": {
+            "id": 1,
+            "name": "Bitcoin",
+            "symbol": "BTC",
+            "tags": ["mineable", {"id": 99, "quote": {"USD": {"price": 1}}}],
+            "platform": {"id": 7},
+            "quote": {
+            "BTC": {"price": 1},
+            "USD": {
+            "price": 21000.5,
+            "volume_24h": 4314444687.5194,
+            "percent_change_1h": 0.5,
+            "percent_change_24h": -1.25,
+            "percent_change_7d": 2,
+            "percent_change_30d": 3.5,
+            "percent_change_60d": null,
+            "percent_change_90d": 12.000000000001,
+            "last_updated": "2023-01-16T09:21:00.000Z"
+            }
+            }
+            },
+            "52": {
+            "id": 52,
+            "name": "XRP",
+            "symbol": "XRP",
+            "quote": {"EUR": {"price": 0.3}}
+            },
+            "1027": {
+            "id": 1027,
+            "quote": {"USD": {"price": 1500.5}}
+            }
+            },
+            "status": {"error_code": 0, "credit_count": 1}
+            }""";
+
+    @Test
+    void whenBodyDecodedInOneChunk_thenEmitOnlyUsdQuotes() {
+        var expected = QuoteStreamDecoder.decode(chunks(QUOTES_BY_ID, Integer.MAX_VALUE))
+                .collectList()
+                .block();
+
+        assertThat(expected)
+                .containsExactly(
+                        new QuoteRecord(1L, 21000_500000000000L, 500000000000L, -1_250000000000L,
+                                2_000000000000L, 3_500000000000L, FixedPoint.NULL, 12_000000000001L, null),
+                        new QuoteRecord(1027L, 1500_500000000000L, FixedPoint.NULL, FixedPoint.NULL,
+                                FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, FixedPoint.NULL, null));
+    }
+
+    @Test
+    void whenBodySplitOnEveryByte_thenEmitSameQuotes() {
+        var expected = QuoteStreamDecoder.decode(chunks(QUOTES_BY_ID, 1))
+                .collectList()
+                .block();
+
+        assertThat(expected)
+                .isEqualTo(QuoteStreamDecoder.decode(chunks(QUOTES_BY_ID, Integer.MAX_VALUE))
+                        .collectList()
+                        .block());
+    }
+
+    @Test
+    void whenDataNestsArraysBySymbol_thenEmitEveryCryptocurrency() {
+        var body = """
+                {"data": {"ETH": [
+                {"id": 1027, "quote": {"USD": {"price": 1500.5}}},
+                {"id": 9999, "quote": {"USD": {"price": 0.01}}}
+                ]}}""";
+
+        var expected = QuoteStreamDecoder.decode(chunks(body, 5))
+                .collectList()
+                .block();
+
+        assertThat(expected)
+                .extracting(QuoteRecord::coinMarketId, QuoteRecord::priceCurrent)
+                .containsExactly(
+                        tuple(1027L, 1500_500000000000L),
+                        tuple(9999L, 10000000000L));
+    }
+
+    @Test
+    void whenQuoteValueOutOfFixedPointRange_thenEmitOverflowQuote() {
+        var body = """
+                {"data": {"1": {"id": 1, "quote": {"USD": {
+                "price": 0.00000000000049,
+                "percent_change_1h": 123456789012.5,
+                "percent_change_24h": -7.25
+                }}}}}""";
+
+        var expected = QuoteStreamDecoder.decode(chunks(body, 6))
+                .collectList()
+                .block();
+
+        assertThat(expected)
+                .singleElement()
+                .extracting(QuoteRecord::overflowQuote)
+                .extracting(
+                        PriceQuoteDTO::getPriceCurrent,
+                        PriceQuoteDTO::getPercentChange1h,
+                        PriceQuoteDTO::getPercentChange24h,
+                        PriceQuoteDTO::getPercentChange7d
+                ).containsExactly(
+                        new BigDecimal("0E-12"),
+                        new BigDecimal("123456789012.5"),
+                        new BigDecimal("-7.250000000000"),
+                        null
+                );
+    }
+
+    @Test
+    void whenDataMissing_thenEmitNothing() {
+        var body = """
+                {"status": {"error_code": 0}, "data": {"1": {}}}""";
+
+        var expected = QuoteStreamDecoder.decode(chunks(body, 3))
+                .collectList()
+                .block();
+
+        assertThat(expected).isEmpty();
+    }
+
+    @Test
+    void whenBodyMalformed_thenThrowDecodingExc() {
+        var body = chunks("{\"data\": {\"1\": {\"id\": 1,, }}}", 4);
+
+        assertThatThrownBy(() -> QuoteStreamDecoder.decode(body).blockLast())
+                .isInstanceOf(DecodingException.class)
+                .hasCauseInstanceOf(JsonParseException.class);
+    }
+
+    private static Flux<DataBuffer> chunks(String body, int chunkSize) {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> dataBuffers = new ArrayList<>();
+        for (var offset = 0; offset < bytes.length; offset += chunkSize) {
+            dataBuffers.add(DefaultDataBufferFactory.sharedInstance
+                    .wrap(Arrays.copyOfRange(bytes, offset, (int) Math.min((long) offset + chunkSize, bytes.length))));
+        }
+        return Flux.fromIterable(dataBuffers);
+    }
+}
@@ -0,0 +1,136 @@
+package pl.cryptoportfolioapp.cryptopriceservice.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.CryptocurrencyDTO;
+import pl.cryptoportfolioapp.cryptopriceservice.dto.model.PriceDTO;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author Karol Kuta-Orlowicz
+ */
+@ExtendWith(MockitoExtension.class)
+@Tag("UnitTest")
+class StalePriceRefreshServiceUnitTest {
+
+    private static final Instant NOW = Instant.parse("2023-01-16T09:00:00Z");
+
+    @Mock
+    private CryptocurrencyService cryptocurrencyService;
+
+    @Mock
+    private PriceUpdateService priceUpdateService;
+
+    @Spy
+    private PriceCheckTracker priceCheckTracker;
+
+    @InjectMocks
+    private StalePriceRefreshService underTest;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(underTest, "coalesceWindow", Duration.ofMillis(200));
+        lenient().when(cryptocurrencyService.getByIds(anyCollection()))
+                .thenReturn(Collections.emptyList());
+        underTest.startRefreshes();
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.stopRefreshes();
+    }
+
+    @Test
+    void whenStaleReadsWithinWindow_thenRefreshedInOneBatch() {
+        underTest.requestRefreshIfStale(cryptocurrency(1L, NOW.minus(Duration.ofMinutes(10))), NOW);
+        underTest.requestRefreshIfStale(cryptocurrency(2L, NOW.minus(Duration.ofMinutes(6))), NOW);
+        underTest.requestRefreshIfStale(cryptocurrency(1L, NOW.minus(Duration.ofMinutes(10))), NOW);
+        underTest.requestRefreshIfStale(cryptocurrency(3L, NOW.minus(Duration.ofMinutes(1))), NOW);
+
+        verify(cryptocurrencyService, timeout(2_000)).getByIds(Set.of(1L, 2L));
+        verify(priceUpdateService, timeout(2_000)).updateCryptocurrencyPrices(any());
+        verifyNoMoreInteractions(cryptocurrencyService);
+    }
+
+    @Test
+    void whenReadAgainAfterRetryInterval_thenRefreshRequestedAgain() {
+        var staleCryptocurrency = cryptocurrency(1L, NOW.minus(Duration.ofMinutes(10)));
+        when(priceUpdateService.updateCryptocurrencyPrices(any()))
+                .thenThrow(new IllegalStateException("upstream down"))
+                .thenReturn(Collections.emptyList());
+
+        underTest.requestRefreshIfStale(staleCryptocurrency, NOW);
+        verify(priceUpdateService, timeout(2_000)).updateCryptocurrencyPrices(any());
+        underTest.requestRefreshIfStale(staleCryptocurrency, NOW.plus(Duration.ofSeconds(10)));
+        underTest.requestRefreshIfStale(staleCryptocurrency, NOW.plus(Duration.ofSeconds(31)));
+
+        verify(priceUpdateService, timeout(2_000).times(2)).updateCryptocurrencyPrices(any());
+        verify(cryptocurrencyService, times(2)).getByIds(Set.of(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenRetryIntervalPassed_thenOldRequestsExpired() {
+        underTest.requestRefreshIfStale(cryptocurrency(1L, NOW.minus(Duration.ofMinutes(10))), NOW);
+        underTest.requestRefreshIfStale(cryptocurrency(2L, NOW.minus(Duration.ofMinutes(10))), NOW);
+        underTest.requestRefreshIfStale(cryptocurrency(3L, NOW.minus(Duration.ofMinutes(10))),
+                NOW.plus(Duration.ofSeconds(31)));
+
+        var lastRequests = (Map<Long, Instant>) ReflectionTestUtils.getField(underTest, "lastRequests");
+        assertThat(lastRequests).containsOnlyKeys(3L);
+    }
+
+    @Test
+    void whenUnchangedPriceCheckedRecently_thenNotRefreshedAgain() {
+        priceCheckTracker.markChecked(List.of(1L), NOW.minus(Duration.ofMinutes(1)));
+        priceCheckTracker.markChecked(List.of(2L), NOW.minus(Duration.ofMinutes(6)));
+
+        underTest.requestRefreshIfStale(cryptocurrency(1L, NOW.minus(Duration.ofMinutes(10))), NOW);
+        underTest.requestRefreshIfStale(cryptocurrency(2L, NOW.minus(Duration.ofMinutes(10))), NOW);
+
+        verify(cryptocurrencyService, timeout(2_000)).getByIds(Set.of(2L));
+        verifyNoMoreInteractions(cryptocurrencyService);
+    }
+
+    @Test
+    void whenDisabled_thenNothingRefreshed() {
+        ReflectionTestUtils.setField(underTest, "enabled", false);
+
+        underTest.requestRefreshIfStale(cryptocurrency(1L, NOW.minus(Duration.ofHours(1))), NOW);
+
+        verify(priceUpdateService, after(500).never()).updateCryptocurrencyPrices(any());
+    }
+
+    private static CryptocurrencyDTO cryptocurrency(Long id, Instant priceLastUpdate) {
+        var priceDTO = new PriceDTO();
+        priceDTO.setId(id);
+        priceDTO.setPriceCurrent(BigDecimal.TEN);
+        priceDTO.setLastUpdate(LocalDateTime.ofInstant(priceLastUpdate, ZoneOffset.UTC));
+        var cryptocurrencyDTO = new CryptocurrencyDTO();
+        cryptocurrencyDTO.setId(id);
+        cryptocurrencyDTO.setPriceDTO(priceDTO);
+        return cryptocurrencyDTO;
+    }
+}